@@ -0,0 +1,87 @@
+package p;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static p.GameScene.SCENE_HEIGHT;
+import static p.GameScene.SCENE_WIDTH;
+
+/**
+ * Benchmark of painting the game scene (GameScene.paintComponent()) into an offscreen image.<br>
+ * Runs without a display (with java.awt.headless=true). The painted game is the state after the specified
+ * number of iterations of a game with a fixed seed, where the net is held down.
+ * Only the viewport is painted, so the cost should not depend on the width of the world.
+ * 
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class PaintBenchmark {
+
+	/** Number of iterations calculated before painting. */
+	@Param( { "0", "2000" } )
+	public int iterations;
+	/** Width of the world.                              */
+	@Param( { "500", "20000" } )
+	public int worldWidth;
+	
+	/** The image painted into.            */
+	private BufferedImage image;
+	/** Graphics context of the image.     */
+	private Graphics2D    graphics;
+	/** The game scene being benchmarked.  */
+	private GameScene     gameScene;
+	
+	/**
+	 * Calculates the game to be painted, and publishes its snapshot to the game scene.
+	 */
+	@Setup
+	public void setup() {
+		final Simulation simulation       = new Simulation( new GameModel( 1l, worldWidth, GameModel.DEFAULT_WORLD_HEIGHT ) );
+		final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+		controlKeyStates[ ControlKeys.DOWN.ordinal() ] = true;
+		for ( int i = 0; i < iterations && !simulation.isGameOver(); i++ )
+			simulation.step( controlKeyStates );
+		
+		final GameModel                      gameModel = simulation.getGameModel();
+		final TripleBuffer< RenderSnapshot > snapshots = new TripleBuffer< RenderSnapshot >( new RenderSnapshot( gameModel ), new RenderSnapshot( gameModel ), new RenderSnapshot( gameModel ) );
+		snapshots.getBackBuffer().fill( gameModel, System.nanoTime() );
+		snapshots.publish();
+		
+		gameScene = new GameScene( snapshots, new Fishing( null ) );
+		gameScene.setSize( SCENE_WIDTH, SCENE_HEIGHT );
+		image     = new BufferedImage( SCENE_WIDTH, SCENE_HEIGHT, BufferedImage.TYPE_INT_RGB );
+		graphics  = image.createGraphics();
+	}
+	
+	/**
+	 * Releases the graphics context.
+	 */
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+	
+	/**
+	 * Paints the game scene.
+	 * @return the painted image (so painting cannot be eliminated)
+	 */
+	@Benchmark
+	public BufferedImage paint() {
+		gameScene.paintComponent( graphics );
+		return image;
+	}
+	
+}
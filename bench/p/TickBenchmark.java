@@ -0,0 +1,88 @@
+package p;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static p.WaterSurface.MAX_SURFACE_AMPLITUDE;
+import static p.WaterSurface.SEA_LEVEL;
+
+/**
+ * Benchmark of the iteration of the game (Simulation.step(), the work of Fishing.nextIteration())
+ * with different numbers of fishes and bubbles.<br>
+ * An invocation restores the game model from a prepared one (so the numbers of entities do not drift),
+ * and calculates TICKS_PER_INVOCATION iterations from it. Fishes start in the middle of the scene
+ * with speeds low enough that most of them are still in the scene at the end of the invocation.
+ * 
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class TickBenchmark {
+
+	/** Number of iterations calculated by an invocation. */
+	private static final int TICKS_PER_INVOCATION = 100;
+	
+	/** Number of fishes.                                 */
+	@Param( { "10", "1000", "10000" } )
+	public int fishes;
+	/** Number of bubbles.                                */
+	@Param( { "10", "1000" } )
+	public int bubbles;
+	/** Number of threads stepping the entities; 0 steps them sequentially. */
+	@Param( { "0" } )
+	public int parallelism;
+	/** Number of capture sub-steps per iteration.        */
+	@Param( { "1", "4" } )
+	public int subSteps;
+	
+	/** The prepared game model every invocation starts from. */
+	private final GameModel  initialGameModel = new GameModel( 1l );
+	/** States of the control keys (the net goes down).       */
+	private final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+	/** The simulation being benchmarked.                     */
+	private Simulation       simulation;
+	
+	/**
+	 * Prepares the initial game model.
+	 */
+	@Setup
+	public void setup() {
+		final FastRandom random = new FastRandom( 2l );
+		for ( int i = 0; i < fishes; i++ )
+			initialGameModel.fishes.add( initialGameModel.worldWidth / 4 + random.nextDouble() * initialGameModel.worldWidth / 2,
+			                             SEA_LEVEL + MAX_SURFACE_AMPLITUDE + random.nextDouble() * ( initialGameModel.worldHeight - SEA_LEVEL - MAX_SURFACE_AMPLITUDE ),
+			                             ( random.nextDouble() - 0.5 ) * 2.0, ( random.nextDouble() - 0.5 ) * 0.2 );
+		for ( int i = 0; i < bubbles; i++ ) {
+			final int bubble = Bubble.add( initialGameModel.bubbles, (int) ( random.nextDouble() * initialGameModel.worldWidth ), initialGameModel.worldHeight );
+			initialGameModel.bubbles.y[ bubble ] -= random.nextDouble() * ( initialGameModel.worldHeight - SEA_LEVEL );
+		}
+		controlKeyStates[ ControlKeys.DOWN.ordinal() ] = true;
+		simulation = new Simulation( new GameModel( 1l ), parallelism );
+		simulation.setSubSteps( subSteps );
+	}
+	
+	/**
+	 * Restores the initial game model and calculates TICKS_PER_INVOCATION iterations.
+	 * @return the game model (so the calculation cannot be eliminated)
+	 */
+	@Benchmark
+	@OperationsPerInvocation( TICKS_PER_INVOCATION )
+	public GameModel tick() {
+		final GameModel gameModel = simulation.getGameModel();
+		gameModel.copyFrom( initialGameModel );
+		for ( int i = 0; i < TICKS_PER_INVOCATION; i++ )
+			simulation.step( controlKeyStates );
+		return gameModel;
+	}
+	
+}
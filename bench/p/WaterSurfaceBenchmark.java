@@ -0,0 +1,103 @@
+package p;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static p.GameScene.SCENE_WIDTH;
+
+/**
+ * Benchmarks of sweeping the water surface: querying the water level or the surface angle at every column
+ * of the scene, right after a step (when nothing is cached yet) and again in the same iteration (cached),
+ * with the single sine surface and with a multi-component wave spectrum.<br>
+ * Run with -Dfishing.sineTableSize=... to benchmark the sine table, and with
+ * -jvmArgsAppend --add-modules=jdk.incubator.vector to benchmark the vector wave kernel.
+ * 
+ * @author Andras Belicza
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class WaterSurfaceBenchmark {
+
+	/** Number of components of the wave spectrum. */
+	@Param( { "1", "16" } )
+	public int components;
+	
+	/** The water surface being benchmarked.      */
+	private WaterSurface waterSurface;
+	
+	/**
+	 * Creates the water surface, and raises the waves to their max amplitude.
+	 */
+	@Setup
+	public void setup() {
+		waterSurface = new WaterSurface( SCENE_WIDTH, WaveSpectrum.create( components ) );
+		waterSurface.surfaceAmplitude = WaterSurface.MAX_SURFACE_AMPLITUDE;
+		waterSurface.invalidateCache();
+	}
+	
+	/**
+	 * Steps the water surface, and queries the water level at every column.
+	 * @return sum of the water levels (so the calculation cannot be eliminated)
+	 */
+	@Benchmark
+	public long waterLevelSweep() {
+		waterSurface.makeStep();
+		return sumWaterLevels();
+	}
+	
+	/**
+	 * Queries the water level at every column without stepping the water surface (the levels are cached).
+	 * @return sum of the water levels (so the calculation cannot be eliminated)
+	 */
+	@Benchmark
+	public long waterLevelSweepCached() {
+		return sumWaterLevels();
+	}
+	
+	/**
+	 * Steps the water surface, and queries the interpolated water level at every column (as painting does).
+	 * @return sum of the water levels (so the calculation cannot be eliminated)
+	 */
+	@Benchmark
+	public long interpolatedWaterLevelSweep() {
+		waterSurface.makeStep();
+		long sum = 0;
+		for ( int x = 0; x < SCENE_WIDTH; x++ )
+			sum += waterSurface.getWaterLevelAt( x, 0.5 );
+		return sum;
+	}
+	
+	/**
+	 * Steps the water surface, and queries the surface angle at every column.
+	 * @return sum of the surface angles (so the calculation cannot be eliminated)
+	 */
+	@Benchmark
+	public double surfaceAngleSweep() {
+		waterSurface.makeStep();
+		double sum = 0.0;
+		for ( int x = 0; x < SCENE_WIDTH; x++ )
+			sum += waterSurface.getSurfaceAngleAt( x );
+		return sum;
+	}
+	
+	/**
+	 * Queries the water level at every column.
+	 * @return sum of the water levels
+	 */
+	private long sumWaterLevels() {
+		long sum = 0;
+		for ( int x = 0; x < SCENE_WIDTH; x++ )
+			sum += waterSurface.getWaterLevelAt( x );
+		return sum;
+	}
+	
+}
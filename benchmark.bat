@@ -0,0 +1,5 @@
+if exist bench\classes rmdir /s /q bench\classes
+mkdir bench\classes
+javac -classpath .;lib\* -d bench\classes p/*.java bench/p/*.java
+javac -classpath bench\classes --add-modules jdk.incubator.vector -d bench\classes vector/p/VectorWaveKernel.java
+java -Djava.awt.headless=true -classpath bench\classes;lib\* org.openjdk.jmh.Main -prof gc %*
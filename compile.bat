@@ -1,2 +1,3 @@
 del *.class /s >nul
-javac -classpath . -g:none p/Fishing.java
+javac -classpath . -g:none p/*.java
+javac -classpath . -g:none --add-modules jdk.incubator.vector -d . vector/p/VectorWaveKernel.java || echo The vector wave kernel was not compiled (it requires Java 16 or newer), the scalar one will be used.
@@ -0,0 +1,100 @@
+package p;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+import static p.GameScene.SCENE_HEIGHT;
+import static p.GameScene.SCENE_WIDTH;
+
+/**
+ * Active renderer of the game scene.<br>
+ * Instead of asking the event dispatch thread to repaint the scene, a dedicated render thread
+ * draws the scene with the same drawing code (GameScene.paintScene()) onto a canvas
+ * through a page flipping buffer strategy, at most at the specified frame rate.
+ * 
+ * @author Andras Belicza
+ */
+class ActiveRenderer extends Canvas implements Runnable {
+
+	/** Version of the serialized form of the class. */
+	private static final long serialVersionUID = 1l;
+	
+	/** The game scene to be rendered.           */
+	private final GameScene gameScene;
+	/** Min length of a frame in nanoseconds.    */
+	private final long      frameNanos;
+	/** The buffer strategy used for rendering.  */
+	private BufferStrategy  bufferStrategy;
+	
+	/**
+	 * Creates a new ActiveRenderer.
+	 * @param gameScene  the game scene to be rendered; it also handles the key events of the canvas
+	 * @param frameNanos min length of a frame in nanoseconds
+	 */
+	public ActiveRenderer( final GameScene gameScene, final long frameNanos ) {
+		this.gameScene  = gameScene;
+		this.frameNanos = frameNanos;
+		
+		setPreferredSize( new Dimension( SCENE_WIDTH, SCENE_HEIGHT ) );
+		setIgnoreRepaint( true );                        // We paint actively, the system must not paint it
+		addKeyListener( gameScene );
+	}
+	
+	/**
+	 * Starts active rendering.<br>
+	 * The canvas must be displayable (its frame must be packed or visible).
+	 * @return true if active rendering started; false if page flipping is not available
+	 */
+	public boolean start() {
+		try {
+			createBufferStrategy( 2, new BufferCapabilities( new ImageCapabilities( true ), new ImageCapabilities( true ), BufferCapabilities.FlipContents.UNDEFINED ) );
+		}
+		catch ( final AWTException ae ) {
+			return false;
+		}
+		bufferStrategy = getBufferStrategy();
+		
+		final Thread renderThread = new Thread( this, "Fishing render thread" );
+		renderThread.setDaemon( true );
+		renderThread.start();
+		return true;
+	}
+	
+	/**
+	 * Renders the game scene frame by frame.
+	 */
+	public void run() {
+		try {
+			long nextFrameNanos = System.nanoTime();
+			while ( true ) {
+				// The contents of the buffers may be lost or restored any time, then we have to render again
+				do {
+					do {
+						final Graphics graphics = bufferStrategy.getDrawGraphics();
+						gameScene.paintScene( graphics );
+						graphics.dispose();
+					} while ( bufferStrategy.contentsRestored() );
+					bufferStrategy.show();
+				} while ( bufferStrategy.contentsLost() );
+				Toolkit.getDefaultToolkit().sync();
+				gameScene.recordFramePresented();
+				
+				nextFrameNanos += frameNanos;
+				final long sleepNanos = nextFrameNanos - System.nanoTime();
+				if ( sleepNanos > 0 )
+					Thread.sleep( sleepNanos / 1000000l, (int) ( sleepNanos % 1000000l ) );
+				else
+					nextFrameNanos = System.nanoTime(); // We are late, no need to catch up with frames
+			}
+		}
+		catch ( final InterruptedException ie ) {
+		}
+	}
+	
+}
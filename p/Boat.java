@@ -1,9 +1,6 @@
 package p;
 
-import static p.GameScene.SCENE_HEIGHT;
-import static p.GameScene.SCENE_WIDTH;
 import static p.WaterSurface.SEA_LEVEL;
-import p.GameScene.ControlKeys;
 
 /**
  * This is the boat with the net what we can move to catch fishes.<br>
@@ -33,14 +30,34 @@ class Boat extends MovingObject {
 	
 	/** Reference to the water surface.                   */
 	private final WaterSurface waterSurface;
+	/** Width of the world.                               */
+	private final int          worldWidth;
+	/** Height of the world.                              */
+	private final int          worldHeight;
+	/** Length of an iteration relative to the iteration the game is tuned for. */
+	private final double       timeStep;
 	
 	/**
 	 * Creates a new boat.
 	 * @param waterSurface reference to the water surface
+	 * @param worldWidth   width of the world
+	 * @param worldHeight  height of the world
+	 * @param timeStep     length of an iteration relative to the iteration the game is tuned for (scales the moves)
 	 */
-	public Boat( final WaterSurface waterSurface ) {
-		super( SCENE_WIDTH / 2.0, ( NET_SIZE + BOAT_HEIGHT ) / 2, VX, VY );
+	public Boat( final WaterSurface waterSurface, final int worldWidth, final int worldHeight, final double timeStep ) {
+		super( worldWidth / 2.0, ( NET_SIZE + BOAT_HEIGHT ) / 2, VX, VY );
 		this.waterSurface = waterSurface;
+		this.worldWidth   = worldWidth;
+		this.worldHeight  = worldHeight;
+		this.timeStep     = timeStep;
+	}
+	
+	/**
+	 * Inits the boat to its initial position: to the middle of the world with the net pulled up.
+	 */
+	public void init() {
+		x = prevX = worldWidth / 2.0;
+		y = prevY = ( NET_SIZE + BOAT_HEIGHT ) / 2;
 	}
 
 	/**
@@ -52,39 +69,50 @@ class Boat extends MovingObject {
 		return waterSurface.getWaterLevelAt( getX() );
 	}
 	
+	/**
+	 * Returns the y coordiante of the boat interpolated between the previous and the current iteration.
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated y coordinate of the boat.
+	 */
+	public int getInterpolatedBoatY( final double alpha ) {
+		return waterSurface.getWaterLevelAt( getInterpolatedX( alpha ), alpha );
+	}
+	
 	/**
 	 * Makes a move of the boat and/or the net.
 	 * @param controlKeyStates states of the control keys
 	 *
 	 */
 	public void makeMove( final boolean[] controlKeyStates ) {
-		x += waterSurface.getDriftingVelocity();
+		storePosition();
+		
+		x += waterSurface.getDriftingVelocity() * timeStep;
 		
 
 		// Now we handle the moves neccessary for the control keys
 		if ( controlKeyStates[ ControlKeys.LEFT.ordinal() ] )
-		   x -= vx;
+		   x -= vx * timeStep;
 		
 		if ( controlKeyStates[ ControlKeys.RIGHT.ordinal() ] )
-			x += vx;
+			x += vx * timeStep;
 		
 		if ( controlKeyStates[ ControlKeys.UP.ordinal() ] )
-			y -= vy;
+			y -= vy * timeStep;
 		
 		if ( controlKeyStates[ ControlKeys.DOWN.ordinal() ] )
-			y += vy;
+			y += vy * timeStep;
 
 	
 		// We check the positions whether they are outside the valid domains
 		if ( x < 0.0 )
 			x = 0.0;
-		if ( x > SCENE_WIDTH - 1.0 )
-			x = SCENE_WIDTH - 1.0;
+		if ( x > worldWidth - 1.0 )
+			x = worldWidth - 1.0;
 
 		if ( y < ( NET_SIZE + BOAT_HEIGHT ) / 2 )
 			y = ( NET_SIZE + BOAT_HEIGHT ) / 2;
-		if ( y > SCENE_HEIGHT - SEA_LEVEL - 1.0 )
-			y = SCENE_HEIGHT - SEA_LEVEL - 1.0;
+		if ( y > worldHeight - SEA_LEVEL - 1.0 )
+			y = worldHeight - SEA_LEVEL - 1.0;
 	}
 	
 }
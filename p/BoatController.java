@@ -0,0 +1,20 @@
+package p;
+
+/**
+ * Controller of the boat: an autopilot producing the states of the control keys instead of the player.<br>
+ * The states are passed to Boat.makeMove() by the simulation. A controller may be called from multiple threads
+ * (e.g. by the parallel evaluation of controllers), so it should not have a state.
+ * 
+ * @author Andras Belicza
+ * @see ControllerEvaluation
+ */
+interface BoatController {
+	
+	/**
+	 * Produces the states of the control keys for the next iteration of a game.
+	 * @param gameModel        the game model in its current state (it must not be modified)
+	 * @param controlKeyStates states of the control keys to be set, indexed by the ordinals of ControlKeys
+	 */
+	void control( GameModel gameModel, boolean[] controlKeyStates );
+	
+}
@@ -1,52 +1,76 @@
 package p;
 
-import static p.GameScene.SCENE_HEIGHT;
-
 /**
- * Class representing a bubble in the water.<br>
- * The bubbles are simply light circles.
+ * Bubbles in the water.<br>
+ * The bubbles are simply light circles.<br>
+ * Bubbles are stored in an EntityStore, this class holds their attributes and behaviour.
+ * The phase column of the store is the phase of the horizontal oscillation of the bubbles.
  * 
  * @author Andras Belicza
  */
-class Bubble extends MovingObject {
+final class Bubble {
 
 	/** Size of the bubbles (diameter).                        */
 	public  static final int    BUBBLE_SIZE                  = 5;
 	/** Ascending velocity of the bubbles.                     */
 	private static final double BUBBLE_ASCENDING_VELOCITY    = -1.6;
 	/** Amplitude of the horizontal oscillation of the bubble. */
-	private static final double BUBBLE_OSCILLATION_AMPLITUDE =  5.0;
+	public  static final double BUBBLE_OSCILLATION_AMPLITUDE =  5.0;
+	/** Step of the phase of the horizontal oscillation.       */
+	private static final double BUBBLE_OSCILLATION_STEP      =  0.15;
 	
-	/** The phase of the horizontal oscillation of the bubble. */
-	private double oscillationPhase = 0.0;
+	/**
+	 * No need to instantiate this class.
+	 */
+	private Bubble() {
+	}
 	
 	/**
-	 * Creates a new Bubble.
-	 * @param x the x coordinate of the bubble
+	 * Adds a new bubble at the bottom of the world.
+	 * @param bubbles     store of the bubbles
+	 * @param x           the x coordinate of the bubble
+	 * @param worldHeight height of the world
+	 * @return the index of the new bubble
 	 */
-	public Bubble( final int x ) {
-		super( x, SCENE_HEIGHT, 0.0, BUBBLE_ASCENDING_VELOCITY );
+	public static int add( final EntityStore bubbles, final int x, final int worldHeight ) {
+		return bubbles.add( x, worldHeight, 0.0, BUBBLE_ASCENDING_VELOCITY );
 	}
 	
 	/**
-	 * Returns the x coordiante of the bubble as an integer.<br>
-	 * Overrides MovingObject.getX() because we want a little horizontal oscillation. 
+	 * Returns the x coordiante of a bubble as an integer.<br>
+	 * Differs from EntityStore.getX() because we want a little horizontal oscillation. 
+	 * @param bubbles store of the bubbles
+	 * @param i       index of the bubble
 	 * @return x coordiante of the bubble as an integer
 	 */
-	public int getX() {
-		return (int) ( x + BUBBLE_OSCILLATION_AMPLITUDE* Math.sin( oscillationPhase ) );
+	public static int getX( final EntityStore bubbles, final int i ) {
+		return (int) ( bubbles.x[ i ] + BUBBLE_OSCILLATION_AMPLITUDE * Math.sin( bubbles.phase[ i ] ) );
 	}
 	
 	/**
-	 * Makes this bubble to step one.<br>
-	 * Overrides MovingObject.makeStep() because we have other things to do,
-	 * we have to step the oscillation phase too.
-	 * Stepping means increasing position with the velocity.
+	 * Returns the x coordiante of a bubble interpolated between the previous and the current iteration as an integer.<br>
+	 * Differs from EntityStore.getInterpolatedX() because of the horizontal oscillation. 
+	 * @param bubbles  store of the bubbles
+	 * @param i        index of the bubble
+	 * @param alpha    interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @param timeStep length of the iteration relative to the iteration the game is tuned for
+	 * @return the interpolated x coordiante of the bubble as an integer
 	 */
-	public void makeStep() {
-		super.makeStep();
-		oscillationPhase += 0.15;
+	public static int getInterpolatedX( final EntityStore bubbles, final int i, final double alpha, final double timeStep ) {
+		return (int) ( bubbles.prevX[ i ] + ( bubbles.x[ i ] - bubbles.prevX[ i ] ) * alpha
+		               + BUBBLE_OSCILLATION_AMPLITUDE * Math.sin( bubbles.phase[ i ] - BUBBLE_OSCILLATION_STEP * timeStep * ( 1.0 - alpha ) ) );
 	}
 	
+	/**
+	 * Makes a bubble to step one.<br>
+	 * Besides stepping the position we have to step the oscillation phase too.
+	 * @param bubbles  store of the bubbles
+	 * @param i        index of the bubble
+	 * @param timeStep length of the iteration relative to the iteration the game is tuned for
+	 */
+	public static void makeStep( final EntityStore bubbles, final int i, final double timeStep ) {
+		bubbles.makeStep( i, timeStep );
+		bubbles.phase[ i ] += BUBBLE_OSCILLATION_STEP * timeStep;
+	}
 	
 }
@@ -0,0 +1,16 @@
+package p;
+
+/**
+ * Enum constants for the control keys.
+ * @author Andras Belicza
+ */
+enum ControlKeys {
+	/** Moving to the left.  */
+	LEFT,
+	/** Moving to the right. */
+	RIGHT,
+	/** Moving to shallow.   */
+	UP,
+	/** Moving to deeper.    */
+	DOWN
+}
@@ -0,0 +1,211 @@
+package p;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates boat controllers by playing seeded games with them in parallel.<br>
+ * Every controller plays the same games (the seeds of the games are generated from one seed), so the results
+ * of the controllers can be compared. The games are split into chunks which are played on a ForkJoinPool,
+ * a chunk reuses one simulation for all its games. A game lasts until it is over, or until it reaches
+ * the max number of iterations (a good controller may play a game for ever).<br>
+ * <br>
+ * Can be started on its own to evaluate the built-in controllers:<br>
+ *   java -Djava.awt.headless=true -cp . p.ControllerEvaluation [games [threads [maxIterations [seed]]]]
+ * 
+ * @author Andras Belicza
+ * @see BoatController
+ */
+class ControllerEvaluation {
+	
+	/** Default number of games played by a controller.                */
+	private static final int DEFAULT_GAMES          = 2000;
+	/** Default max number of iterations of a game (5 minutes of game). */
+	private static final int DEFAULT_MAX_ITERATIONS = 5 * 60 * Simulation.ITERATIONS_PER_SEC;
+	/** Number of games played in a chunk.                              */
+	private static final int CHUNK_SIZE             = 8;
+	
+	/** Pool playing the games in parallel.                  */
+	private final ForkJoinPool forkJoinPool;
+	/** Seeds of the games.                                  */
+	private final long[]       seeds;
+	/** Max number of iterations of a game.                  */
+	private final int          maxIterations;
+	
+	/**
+	 * Creates a new ControllerEvaluation.
+	 * @param games         number of games played by a controller
+	 * @param threads       number of threads playing the games
+	 * @param maxIterations max number of iterations of a game
+	 * @param seed          seed used to generate the seeds of the games
+	 */
+	public ControllerEvaluation( final int games, final int threads, final int maxIterations, final long seed ) {
+		forkJoinPool       = new ForkJoinPool( Math.max( 1, threads ) );
+		seeds              = new long[ games ];
+		this.maxIterations = maxIterations;
+		
+		final FastRandom seedRandom = new FastRandom( seed );
+		for ( int i = 0; i < games; i++ )
+			seeds[ i ] = seedRandom.nextLong();
+	}
+	
+	/**
+	 * Evaluates a controller: plays all the games with it.
+	 * @param controller controller to be evaluated
+	 * @return the result of the evaluation
+	 */
+	public Result evaluate( final BoatController controller ) {
+		final long   startNanos = System.nanoTime();
+		final Result result     = forkJoinPool.invoke( new ChunkTask( controller, 0, seeds.length ) );
+		result.elapsedNanos     = System.nanoTime() - startNanos;
+		return result;
+	}
+	
+	/**
+	 * Shuts down the threads playing the games.
+	 */
+	public void shutdown() {
+		forkJoinPool.shutdown();
+	}
+	
+	/**
+	 * Result of the evaluation of a controller.
+	 */
+	public static class Result {
+		/** Number of games played.                          */
+		public int  games;
+		/** Number of fishes caught in the games.            */
+		public long fishesCaught;
+		/** Number of fishes missed in the games.            */
+		public long fishesMissed;
+		/** Number of iterations of the games.               */
+		public long iterations;
+		/** Time of the evaluation in nanoseconds.           */
+		public long elapsedNanos;
+		
+		/**
+		 * Adds another result to this one.
+		 * @param result result to be added
+		 */
+		private void add( final Result result ) {
+			games        += result.games;
+			fishesCaught += result.fishesCaught;
+			fishesMissed += result.fishesMissed;
+			iterations   += result.iterations;
+		}
+		
+		/**
+		 * Returns the catch rate: the ratio of the caught fishes to all the fishes which were caught or missed.
+		 * @return the catch rate
+		 */
+		public double getCatchRate() {
+			return fishesCaught + fishesMissed == 0 ? 0.0 : (double) fishesCaught / ( fishesCaught + fishesMissed );
+		}
+		
+		/**
+		 * Returns the number of games played per second.
+		 * @return the number of games played per second
+		 */
+		public double getGamesPerSec() {
+			return games * 1e9 / Math.max( 1l, elapsedNanos );
+		}
+	}
+	
+	/**
+	 * Task playing a chunk of games. Chunks larger than CHUNK_SIZE are split.
+	 */
+	private class ChunkTask extends RecursiveTask< Result > {
+		
+		/** Version of the serialized form of the class.     */
+		private static final long serialVersionUID = 1l;
+		
+		/** The controller playing the games.                */
+		private final BoatController controller;
+		/** Index of the first game of the chunk.            */
+		private final int            from;
+		/** Index after the last game of the chunk.          */
+		private final int            to;
+		
+		/**
+		 * Creates a new ChunkTask.
+		 * @param controller the controller playing the games
+		 * @param from       index of the first game of the chunk
+		 * @param to         index after the last game of the chunk
+		 */
+		public ChunkTask( final BoatController controller, final int from, final int to ) {
+			this.controller = controller;
+			this.from       = from;
+			this.to         = to;
+		}
+		
+		@Override
+		protected Result compute() {
+			if ( to - from > CHUNK_SIZE ) {
+				final int       middle = ( from + to ) >>> 1;
+				final ChunkTask right  = new ChunkTask( controller, middle, to );
+				right.fork();
+				final Result result = new ChunkTask( controller, from, middle ).compute();
+				result.add( right.join() );
+				return result;
+			}
+			
+			final Result     result           = new Result();
+			final Simulation simulation       = new Simulation();
+			final GameModel  gameModel        = simulation.getGameModel();
+			final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+			for ( int i = from; i < to; i++ ) {
+				simulation.reset( seeds[ i ] );
+				while ( !simulation.isGameOver() && gameModel.iterationCounter < maxIterations ) {
+					controller.control( gameModel, controlKeyStates );
+					simulation.step( controlKeyStates );
+				}
+				result.games++;
+				result.fishesCaught += gameModel.fishesCaught;
+				result.fishesMissed += gameModel.fishesMissed;
+				result.iterations   += gameModel.iterationCounter;
+			}
+			return result;
+		}
+		
+	}
+	
+	/**
+	 * Evaluates the built-in controllers and prints the results.
+	 * @param arguments optionally the number of games, the number of threads, the max number of iterations of a game
+	 *                  and the seed
+	 */
+	public static void main( final String[] arguments ) {
+		final int  games         = arguments.length > 0 ? Integer.parseInt( arguments[ 0 ] ) : DEFAULT_GAMES;
+		final int  threads       = arguments.length > 1 ? Integer.parseInt( arguments[ 1 ] ) : Runtime.getRuntime().availableProcessors();
+		final int  maxIterations = arguments.length > 2 ? Integer.parseInt( arguments[ 2 ] ) : DEFAULT_MAX_ITERATIONS;
+		final long seed          = arguments.length > 3 ? Long.parseLong( arguments[ 3 ] ) : FastRandom.newSeed();
+		
+		final String[]         names       = { "idle", "intercept" };
+		final BoatController[] controllers = {
+			new BoatController() {
+				public void control( final GameModel gameModel, final boolean[] controlKeyStates ) {
+					Arrays.fill( controlKeyStates, false );
+				}
+			},
+			new InterceptController()
+		};
+		
+		final ControllerEvaluation evaluation = new ControllerEvaluation( games, threads, maxIterations, seed );
+		System.out.println( "Seed:                    " + seed );
+		System.out.println( "Games per controller:    " + games );
+		System.out.println( "Threads:                 " + threads );
+		System.out.println( "Max iterations per game: " + maxIterations );
+		for ( int i = 0; i < controllers.length; i++ ) {
+			final Result result = evaluation.evaluate( controllers[ i ] );
+			System.out.println();
+			System.out.println( "Controller:              " + names[ i ] );
+			System.out.println( "Catch rate:              " + result.getCatchRate() );
+			System.out.println( "Fishes caught per game:  " + (double) result.fishesCaught / result.games );
+			System.out.println( "Iterations per game:     " + result.iterations / result.games );
+			System.out.println( "Games per sec:           " + (long) result.getGamesPerSec() );
+		}
+		evaluation.shutdown();
+	}
+	
+}
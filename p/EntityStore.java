@@ -0,0 +1,201 @@
+package p;
+
+/**
+ * Stores moving entities (fishes, bubbles) in a structure of arrays.<br>
+ * The attributes of the entities are stored in parallel primitive arrays (columns), the entity with index i
+ * has its attributes at index i in all columns. The first count elements of the columns are live.<br>
+ * Deletion is done by moving the last live entity to the place of the deleted one (swap-remove),
+ * so the order of the entities is not kept.<br>
+ * The columns are public for fast iteration, but they may be replaced (grown) when entities are added,
+ * so references to them must not be kept across adding entities.
+ * 
+ * @author Andras Belicza
+ */
+class EntityStore {
+
+	/** Initial capacity of the columns, enough for a normal game so the columns need not grow. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** x coordinates of the entities.                                   */
+	public double[] x;
+	/** y coordinates of the entities.                                   */
+	public double[] y;
+	/** x coordinates of the entities in the previous iteration.         */
+	public double[] prevX;
+	/** y coordinates of the entities in the previous iteration.         */
+	public double[] prevY;
+	/** Horizontal components of the velocity of the entities.           */
+	public double[] vx;
+	/** Vertical components of the velocity of the entities.             */
+	public double[] vy;
+	/** Phases of the entities (for entities having periodic movements). */
+	public double[] phase;
+	/** Number of live entities.                                         */
+	public int      count;
+	
+	/**
+	 * Creates a new, empty EntityStore.
+	 */
+	public EntityStore() {
+		allocateColumns( INITIAL_CAPACITY );
+	}
+	
+	/**
+	 * Allocates new columns with the specified capacity, and copies the live entities into them.
+	 * @param capacity capacity of the new columns
+	 */
+	private void allocateColumns( final int capacity ) {
+		x     = copyOf( x    , capacity );
+		y     = copyOf( y    , capacity );
+		prevX = copyOf( prevX, capacity );
+		prevY = copyOf( prevY, capacity );
+		vx    = copyOf( vx   , capacity );
+		vy    = copyOf( vy   , capacity );
+		phase = copyOf( phase, capacity );
+	}
+	
+	/**
+	 * Returns a new column with the specified capacity containing the live entities of the specified column.
+	 * @param column   column to be copied; can be null
+	 * @param capacity capacity of the new column
+	 * @return a new column with the specified capacity containing the live entities of the specified column
+	 */
+	private double[] copyOf( final double[] column, final int capacity ) {
+		final double[] newColumn = new double[ capacity ];
+		if ( column != null )
+			System.arraycopy( column, 0, newColumn, 0, count );
+		return newColumn;
+	}
+	
+	/**
+	 * Adds a new entity.
+	 * @param x  the initial x coordinate
+	 * @param y  the initial y coordinate
+	 * @param vx horizontal component of the velocity
+	 * @param vy vertical component of the velocity
+	 * @return the index of the new entity
+	 */
+	public int add( final double x, final double y, final double vx, final double vy ) {
+		if ( count == this.x.length )
+			allocateColumns( count * 2 );
+		
+		final int i = count;
+		this.x    [ i ] = x;
+		this.y    [ i ] = y;
+		this.prevX[ i ] = x;
+		this.prevY[ i ] = y;
+		this.vx   [ i ] = vx;
+		this.vy   [ i ] = vy;
+		this.phase[ i ] = 0.0;
+		count++;
+		
+		return i;
+	}
+	
+	/**
+	 * Removes an entity.<br>
+	 * The last live entity is moved to the place of the removed one.
+	 * @param i index of the entity to be removed
+	 */
+	public void remove( final int i ) {
+		final int last = --count;
+		if ( i != last ) {
+			x    [ i ] = x    [ last ];
+			y    [ i ] = y    [ last ];
+			prevX[ i ] = prevX[ last ];
+			prevY[ i ] = prevY[ last ];
+			vx   [ i ] = vx   [ last ];
+			vy   [ i ] = vy   [ last ];
+			phase[ i ] = phase[ last ];
+		}
+	}
+	
+	/**
+	 * Copies all entities of another store into this store (replacing the entities of this store).
+	 * @param store the store to be copied
+	 */
+	public void copyFrom( final EntityStore store ) {
+		count = 0;
+		if ( x.length < store.count )
+			allocateColumns( store.x.length );
+		
+		System.arraycopy( store.x    , 0, x    , 0, store.count );
+		System.arraycopy( store.y    , 0, y    , 0, store.count );
+		System.arraycopy( store.prevX, 0, prevX, 0, store.count );
+		System.arraycopy( store.prevY, 0, prevY, 0, store.count );
+		System.arraycopy( store.vx   , 0, vx   , 0, store.count );
+		System.arraycopy( store.vy   , 0, vy   , 0, store.count );
+		System.arraycopy( store.phase, 0, phase, 0, store.count );
+		count = store.count;
+	}
+	
+	/**
+	 * Sets the number of live entities, the columns are grown if needed.<br>
+	 * The attributes of the added entities are not initialized, they must be set by the caller.
+	 * @param count the new number of live entities
+	 */
+	public void setCount( final int count ) {
+		if ( x.length < count )
+			allocateColumns( Math.max( count, x.length * 2 ) );
+		this.count = count;
+	}
+	
+	/**
+	 * Removes all entities.
+	 */
+	public void clear() {
+		count = 0;
+	}
+	
+	/**
+	 * Returns the x coordinate of an entity as an integer.
+	 * @param i index of the entity
+	 * @return the x coordinate of the entity as an integer
+	 */
+	public int getX( final int i ) {
+		return (int) x[ i ];
+	}
+	
+	/**
+	 * Returns the y coordinate of an entity as an integer.
+	 * @param i index of the entity
+	 * @return the y coordinate of the entity as an integer
+	 */
+	public int getY( final int i ) {
+		return (int) y[ i ];
+	}
+	
+	/**
+	 * Returns the x coordinate of an entity interpolated between the previous and the current iteration as an integer.
+	 * @param i     index of the entity
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated x coordinate of the entity as an integer
+	 */
+	public int getInterpolatedX( final int i, final double alpha ) {
+		return (int) ( prevX[ i ] + ( x[ i ] - prevX[ i ] ) * alpha );
+	}
+	
+	/**
+	 * Returns the y coordinate of an entity interpolated between the previous and the current iteration as an integer.
+	 * @param i     index of the entity
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated y coordinate of the entity as an integer
+	 */
+	public int getInterpolatedY( final int i, final double alpha ) {
+		return (int) ( prevY[ i ] + ( y[ i ] - prevY[ i ] ) * alpha );
+	}
+	
+	/**
+	 * Makes an entity to step one.
+	 * Stepping means increasing position with the velocity (which is per the iteration the game is tuned for).
+	 * @param i        index of the entity
+	 * @param timeStep length of the iteration relative to the iteration the game is tuned for
+	 */
+	public void makeStep( final int i, final double timeStep ) {
+		prevX[ i ]  = x[ i ];
+		prevY[ i ]  = y[ i ];
+		x    [ i ] += vx[ i ] * timeStep;
+		y    [ i ] += vy[ i ] * timeStep;
+	}
+	
+}
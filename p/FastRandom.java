@@ -0,0 +1,82 @@
+package p;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast, seedable pseudo random number generator (SplitMix64).<br>
+ * Unlike Math.random() it is not shared between threads (so it does not need atomic operations),
+ * and the same seed always generates the same sequence, so games can be re-run exactly.
+ * The whole state of the generator is a long, which can be queried and restored.
+ * 
+ * @author Andras Belicza
+ */
+class FastRandom {
+
+	/** The increment of the state ("golden gamma").                     */
+	private static final long       GOLDEN_GAMMA      = 0x9e3779b97f4a7c15l;
+	/** Counter used to make the generated seeds unique.                 */
+	private static final AtomicLong SEED_UNIQUIFIER   = new AtomicLong( 0x2545f4914f6cdd1dl );
+	
+	/** State of the generator.                                          */
+	private long state;
+	
+	/**
+	 * Creates a new FastRandom.
+	 * @param seed seed of the generator
+	 */
+	public FastRandom( final long seed ) {
+		state = seed;
+	}
+	
+	/**
+	 * Generates a seed which is very likely to be different from any other generated seed.
+	 * @return a new seed
+	 */
+	public static long newSeed() {
+		return mix( SEED_UNIQUIFIER.addAndGet( GOLDEN_GAMMA ) ^ System.nanoTime() );
+	}
+	
+	/**
+	 * Returns the state of the generator.
+	 * @return the state of the generator
+	 */
+	public long getState() {
+		return state;
+	}
+	
+	/**
+	 * Sets the state of the generator. Setting the seed as the state restarts the sequence of the seed.
+	 * @param state the state to be set
+	 */
+	public void setState( final long state ) {
+		this.state = state;
+	}
+	
+	/**
+	 * Returns the next pseudo random long.
+	 * @return the next pseudo random long
+	 */
+	public long nextLong() {
+		return mix( state += GOLDEN_GAMMA );
+	}
+	
+	/**
+	 * Returns the next pseudo random double, uniformly distributed in the range of [0.0 .. 1.0).
+	 * @return the next pseudo random double
+	 */
+	public double nextDouble() {
+		return ( nextLong() >>> 11 ) * 0x1.0p-53;
+	}
+	
+	/**
+	 * Mixes the bits of a long (the finalizer of SplitMix64).
+	 * @param z long to be mixed
+	 * @return the mixed long
+	 */
+	private static long mix( long z ) {
+		z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9l;
+		z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebl;
+		return z ^ ( z >>> 31 );
+	}
+	
+}
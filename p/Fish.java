@@ -1,11 +1,12 @@
 package p;
 
 /**
- * Class representing a fish.
+ * Fishes.<br>
+ * Fishes are stored in an EntityStore, this class holds their attributes and behaviour.
  * 
  * @author Andras Belicza
  */
-class Fish extends MovingObject {
+final class Fish {
 
 	/** Width of a fish.                                  */
 	public static final int FISH_WIDTH  = 26;
@@ -13,22 +14,19 @@ class Fish extends MovingObject {
 	public static final int FISH_HEIGHT = 10;
 	
 	/**
-	 * Creates a new Fish.
-	 * @param x  the initial x coordinate
-	 * @param y  the initial y coordinate
-	 * @param vx horizontal component of the velocity of the fish
-	 * @param vy vertical component of the velocity of the fish
+	 * No need to instantiate this class.
 	 */
-	public Fish( final double x, final double y, final double vx, final double vy ) {
-		super( x, y, vx, vy );
+	private Fish() {
 	}
 	
 	/**
-	 * Tells whether this fish heading right (from left to right on the game scene).
-	 * @return true if this fish heading right; false otherwise (if heading to left)
+	 * Tells whether a fish heading right (from left to right on the game scene).
+	 * @param fishes store of the fishes
+	 * @param i      index of the fish
+	 * @return true if the fish heading right; false otherwise (if heading to left)
 	 */
-	public boolean headingRight() {
-		return vx > 0.0;
+	public static boolean headingRight( final EntityStore fishes, final int i ) {
+		return fishes.vx[ i ] > 0.0;
 	}
 	
 }
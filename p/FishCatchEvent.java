@@ -0,0 +1,35 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a caught fish.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.FishCatch" )
+@Label( "Fish Catch" )
+@Description( "A fish was caught by the net" )
+@Category( { "Fishing", "Simulation" } )
+@Enabled( false )
+@StackTrace( false )
+class FishCatchEvent extends Event {
+
+	/** x coordinate of the caught fish.         */
+	@Label( "X" )
+	public int x;
+	/** y coordinate of the caught fish.         */
+	@Label( "Y" )
+	public int y;
+	/** Number of caught fishes including this one. */
+	@Label( "Fishes Caught" )
+	public int fishesCaught;
+	
+}
@@ -0,0 +1,35 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a missed fish.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.FishMiss" )
+@Label( "Fish Miss" )
+@Description( "A fish left the scene without being caught" )
+@Category( { "Fishing", "Simulation" } )
+@Enabled( false )
+@StackTrace( false )
+class FishMissEvent extends Event {
+
+	/** x coordinate of the missed fish.         */
+	@Label( "X" )
+	public int x;
+	/** y coordinate of the missed fish.         */
+	@Label( "Y" )
+	public int y;
+	/** Number of missed fishes including this one. */
+	@Label( "Fishes Missed" )
+	public int fishesMissed;
+	
+}
@@ -0,0 +1,38 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a new fish.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.FishSpawn" )
+@Label( "Fish Spawn" )
+@Description( "A new fish entered the scene" )
+@Category( { "Fishing", "Simulation" } )
+@Enabled( false )
+@StackTrace( false )
+class FishSpawnEvent extends Event {
+
+	/** x coordinate of the new fish.   */
+	@Label( "X" )
+	public double x;
+	/** y coordinate of the new fish.   */
+	@Label( "Y" )
+	public double y;
+	/** Horizontal velocity of the fish. */
+	@Label( "Velocity X" )
+	public double vx;
+	/** Vertical velocity of the fish.  */
+	@Label( "Velocity Y" )
+	public double vy;
+	
+}
@@ -1,20 +1,21 @@
 package p;
 
-import java.util.Vector;
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JSeparator;
 
-import static p.Boat.NET_SIZE;
-import static p.Fish.FISH_HEIGHT;
-import static p.Fish.FISH_WIDTH;
-import static p.GameScene.SCENE_HEIGHT;
-import static p.GameScene.SCENE_WIDTH;
-import static p.WaterSurface.MAX_SURFACE_AMPLITUDE;
-import static p.WaterSurface.SEA_LEVEL;
-import static p.Bubble.BUBBLE_SIZE;
+import static p.Simulation.ITERATIONS_PER_SEC;
+import static p.Simulation.MAX_FISHES_MISSED;
 
 /**
  * Main class of Fishing.<br>
@@ -27,20 +28,54 @@ import static p.Bubble.BUBBLE_SIZE;
  */
 public class Fishing {
 
-	/** Approximatelly number of iterations per sec. (Note: same as fps) */
-	private static final int ITERATIONS_PER_SEC  = 20;
-	/** Max allowed  missed fishes. Reaching this is the end of game.    */
-	private static final int MAX_FISHES_MISSED   = 10;
+	/** Default max number of frames per sec.                                       */
+	private static final int FRAMES_PER_SEC          = 60;
+	/** Max number of iterations (of the iteration rate the game is tuned for) calculated in a row to catch up with the schedule. */
+	private static final int MAX_CATCH_UP_ITERATIONS = 5;
 	
 	
-	/** The game model.                                          */
-	private final GameModel  gameModel  = new GameModel();
-	/** The game scene.                                          */
-	private final GameScene  gameScene  = new GameScene( gameModel, this );
-	/** Reference to the main frame (method showHelp() uses it). */
+	/** The game model.                                                  */
+	private final GameModel  gameModel          = new GameModel( Long.getLong( "fishing.seed", FastRandom.newSeed() ),
+	                                                             Math.max( GameScene.SCENE_WIDTH , Integer.getInteger( "fishing.worldWidth" , GameModel.DEFAULT_WORLD_WIDTH  ) ),
+	                                                             Math.max( GameScene.SCENE_HEIGHT, Integer.getInteger( "fishing.worldHeight", GameModel.DEFAULT_WORLD_HEIGHT ) ),
+	                                                             WaveSpectrum.create( Integer.getInteger( "fishing.waveComponents", 1 ) ),
+	                                                             Math.max( 1, Integer.getInteger( "fishing.iterationsPerSec", ITERATIONS_PER_SEC ) ),
+	                                                             Integer.getInteger( "fishing.sineTableSize", 0 ) );
+	/** The simulation calculating the iterations of the game model.     */
+	private final Simulation simulation         = new Simulation( gameModel, Integer.getInteger( "fishing.parallelism", 0 ) );
+	/** Snapshots of the game published to the game scene.               */
+	private final TripleBuffer< RenderSnapshot > snapshots
+	                                            = new TripleBuffer< RenderSnapshot >( new RenderSnapshot( gameModel ), new RenderSnapshot( gameModel ), new RenderSnapshot( gameModel ) );
+	/** The game scene.                                                  */
+	private final GameScene  gameScene          = new GameScene( snapshots, this );
+	/** Reference to the main frame (method showHelp() uses it).         */
 	private final JFrame     mainFrame;
-	/** Tells whether game is paused.                            */
-	private volatile boolean gamePaused = true;
+	/** Length of an iteration in nanoseconds.                           */
+	private final long       iterationNanos;
+	/** Max number of iterations calculated in a row to catch up with the schedule (the same time at any iteration rate). */
+	private final int        maxCatchUpIterations;
+	/** Min length of a frame in nanoseconds.                            */
+	private final long       frameNanos;
+	/** Lock used to wait for resuming the game.                         */
+	private final Object     pauseLock          = new Object();
+	/** Tells whether game is paused.                                    */
+	private volatile boolean gamePaused         = true;
+	/** The active renderer; null if the scene is rendered passively.    */
+	private ActiveRenderer   activeRenderer;
+	/** States of the control keys used by the current iteration.        */
+	private final boolean[]  controlKeyStates   = new boolean[ ControlKeys.values().length ];
+	/** Time the game was last resumed (System.nanoTime).                */
+	private long             resumeNanos;
+	/** Sequence number of the last input (key events applied by an iteration). */
+	private long             inputSequence;
+	/** Time of the first key event of the last input (System.nanoTime). */
+	private long             inputNanos;
+	/** Recorder of the inputs; null if inputs are not recorded.         */
+	private final InputRecorder inputRecorder;
+	/** Performance metrics of the game.                                 */
+	private final PerformanceMetrics performanceMetrics = new PerformanceMetrics();
+	/** Controller playing instead of the player; null if the player plays. */
+	private final BoatController autopilot      = Boolean.getBoolean( "fishing.autopilot" ) ? new InterceptController() : null;
 
 	
 	
@@ -58,14 +93,34 @@ public class Fishing {
 		mainFrame.setLocation( 100, 100 );
 		
 		
-		// We create the fishing object and add the game scene to the main frame
+		// We create the fishing object and add the game scene (or its active renderer) to the main frame
 		final Fishing fishing = new Fishing( mainFrame );
-		mainFrame.getContentPane().add( fishing.gameScene );
-		mainFrame.pack();
-		mainFrame.setVisible( true );
+		if ( Boolean.getBoolean( "fishing.activeRendering" ) ) {
+			final ActiveRenderer activeRenderer = new ActiveRenderer( fishing.gameScene, fishing.frameNanos );
+			mainFrame.getContentPane().add( activeRenderer );
+			mainFrame.pack();
+			mainFrame.setVisible( true );
+			if ( activeRenderer.start() )
+				fishing.activeRenderer = activeRenderer;
+			else                                            // Page flipping is not available, we fall back to passive rendering
+				mainFrame.getContentPane().remove( activeRenderer );
+		}
+		if ( fishing.activeRenderer == null ) {
+			mainFrame.getContentPane().add( fishing.gameScene );
+			mainFrame.pack();
+			mainFrame.setVisible( true );
+		}
+		
+		// The performance metrics can be monitored with JMX tools
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean( fishing.performanceMetrics, new ObjectName( PerformanceMetrics.OBJECT_NAME ) );
+		}
+		catch ( final JMException je ) {
+			je.printStackTrace();
+		}
 		
 		// This is where key inputs go, focus must be owned
-		fishing.gameScene.requestFocusInWindow();
+		fishing.getInputComponent().requestFocusInWindow();
 		
 		// We show some infos and helps about the program
 		fishing.showHelp();
@@ -76,10 +131,46 @@ public class Fishing {
 
 	/**
 	 * Creates a new Fishing
-	 * @param mainFrame reference to the main frame
+	 * @param mainFrame reference to the main frame (may be null, e.g. when the game scene is benchmarked)
 	 */
-	private Fishing( final JFrame mainFrame ) {
+	Fishing( final JFrame mainFrame ) {
 		this.mainFrame = mainFrame;
+		
+		// The game model scales the iterations by their length, so the iteration rate does not change the speed of the game
+		iterationNanos       = 1000000000l / gameModel.iterationsPerSec;
+		maxCatchUpIterations = Math.max( 1, MAX_CATCH_UP_ITERATIONS * gameModel.iterationsPerSec / ITERATIONS_PER_SEC );
+		frameNanos           = 1000000000l / Math.max( 1, Integer.getInteger( "fishing.framesPerSec", FRAMES_PER_SEC ) );
+		
+		inputRecorder        = createInputRecorder();
+	}
+	
+	/**
+	 * Creates the input recorder if a recording file is specified.<br>
+	 * The recording is closed (with the final state of the game) when the application exits.
+	 * @return the input recorder; null if no recording file is specified or it cannot be created
+	 */
+	private InputRecorder createInputRecorder() {
+		final String recordFile = System.getProperty( "fishing.recordFile" );
+		if ( recordFile == null )
+			return null;
+		
+		final InputRecorder inputRecorder;
+		try {
+			inputRecorder = new InputRecorder( new File( recordFile ), gameModel.seed, gameModel.worldWidth, gameModel.worldHeight,
+			                                   gameModel.waterSurface.getSpectrum().getComponents(), simulation.getSubSteps(), gameModel.iterationsPerSec,
+			                                   gameModel.waterSurface.getSineTableSize() );
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace();
+			return null;
+		}
+		Runtime.getRuntime().addShutdownHook( new Thread() {
+			@Override
+			public void run() {
+				inputRecorder.close( gameModel );
+			}
+		} );
+		return inputRecorder;
 	}
 	
 	/**
@@ -96,6 +187,7 @@ public class Fishing {
 				new JSeparator(),
 				"Control keys:",
 				" F1 - this help",
+				" F2 - show/hide performance info",
 				" Space - pause/resume",
 				" left/right - move the boat to left/right",
 				" up/down - move your net to up/down",
@@ -103,30 +195,63 @@ public class Fishing {
 				new JLabel( "Created by Andr\u00e1s Belicza", JLabel.CENTER ),
 				new JLabel( "2005 Hungary", JLabel.CENTER ),
 				new JSeparator(),
+				"Seed of the game: " + gameModel.seed,
 			}, "Fishing help", JOptionPane.INFORMATION_MESSAGE );
 		
-		gameScene.requestFocusInWindow();  // In linux, game scene can lose the focus after the dialog window (or rather not gain back)
+		getInputComponent().requestFocusInWindow();  // In linux, game scene can lose the focus after the dialog window (or rather not gain back)
 	}
 	
 	/**
-	 * Controls the game, manages the game iterations.
+	 * Controls the game, manages the game iterations.<br>
+	 * Iterations are calculated with a fixed timestep according to System.nanoTime(),
+	 * the scene is repainted between them (interpolating the last two iterations) unless it is rendered actively.
+	 * If we fall behind the schedule, at most maxCatchUpIterations iterations are calculated in a row,
+	 * the rest is dropped (the game slows down instead of freezing).
 	 */
 	private void controlGame() {
 		try {
 			while ( true ) {
 				
-				while ( gamePaused )
-					Thread.sleep( 1l );
+				synchronized ( pauseLock ) {
+					while ( gamePaused )
+						pauseLock.wait();
+				}
 
-				if ( isGameOver() )                              // If game ended (game over), we start a new game
-					gameModel.init();
+				long nextIterationNanos = System.nanoTime();
+				resumeNanos = nextIterationNanos;
+				if ( isGameOver() ) {                            // If game ended (game over), we start a new game
+					newGame();
+					publishSnapshot( nextIterationNanos );
+				}
 				
+				long nextFrameNanos     = nextIterationNanos;
+				gameScene.invalidateDirtyRegion();              // The 'Game paused' text has to disappear
 				while ( !gamePaused ) {
-					nextIteration();
-					gameScene.repaint();
-					Thread.sleep( 1000l / ITERATIONS_PER_SEC ); // This causes the approximation: painting and calculating takes some time, but this works perfectly for us, no need for better timing
-					if ( isGameOver()  )
-						gamePaused = true;
+					long now = System.nanoTime();
+					
+					int catchUpIterations = 0;
+					while ( now - nextIterationNanos >= 0 && catchUpIterations++ < maxCatchUpIterations && !gamePaused ) {
+						nextIteration();
+						publishSnapshot( nextIterationNanos );
+						nextIterationNanos += iterationNanos;
+						if ( isGameOver() )
+							setGamePaused( true );
+					}
+					if ( now - nextIterationNanos >= 0 ) {      // Still behind the schedule, we drop the missed iterations
+						performanceMetrics.recordDroppedTicks( ( now - nextIterationNanos ) / iterationNanos + 1 );
+						nextIterationNanos = now + iterationNanos;
+					}
+					
+					if ( activeRenderer == null && now - nextFrameNanos >= 0 ) {
+						gameScene.repaintDirtyRegion();
+						nextFrameNanos = now + frameNanos;
+					}
+					
+					// We sleep until the next iteration or the next frame (if we repaint), whichever comes first
+					now = System.nanoTime();
+					final long sleepNanos = ( activeRenderer != null || nextIterationNanos - nextFrameNanos < 0 ? nextIterationNanos : nextFrameNanos ) - now;
+					if ( sleepNanos > 0 )
+						Thread.sleep( sleepNanos / 1000000l, (int) ( sleepNanos % 1000000l ) );
 				}
 				gameScene.repaint();                            // We want the 'Game paused' or 'Game over' text displayed...
 			}
@@ -135,103 +260,99 @@ public class Fishing {
 		}
 	}
 
+	/**
+	 * Returns the component receiving the key inputs: the active renderer or the game scene.
+	 * @return the component receiving the key inputs
+	 */
+	private Component getInputComponent() {
+		return activeRenderer == null ? gameScene : activeRenderer;
+	}
+	
+	/**
+	 * Starts a new game.
+	 */
+	private void newGame() {
+		if ( inputRecorder == null )
+			simulation.reset();
+		else
+			synchronized ( inputRecorder ) {  // The recording must not be closed between the reset and its record
+				simulation.reset();
+				inputRecorder.recordReset();
+			}
+	}
+	
 	/**
 	 * Calculates the next iteration of the game.
 	 */
 	private void nextIteration() {
-		// Cloning the array of states of control keys will ensure that
-		// all the process of next iteration will see and use the same key states
-		final boolean[] controlKeyStates = gameScene.getControlKeyStates().clone();
+		final long   startNanos = System.nanoTime();
+		final Object tickEvent  = GameEvents.beginTick();  // null if the event is disabled
 		
-		gameModel.boat.makeMove( controlKeyStates );
-		
-		// Increment size of surface phase
-		gameModel.waterSurface.surfacePhase += 0.12;
+		applyKeyEvents();
+		if ( autopilot != null )
+			autopilot.control( gameModel, controlKeyStates );
+		if ( inputRecorder == null )
+			simulation.step( controlKeyStates );
+		else
+			synchronized ( inputRecorder ) {  // The recording must not be closed between the iteration and its record
+				simulation.step( controlKeyStates );
+				inputRecorder.recordIteration( controlKeyStates );
+			}
 		
-		// Increment size of surface amplitude.
-		// Increased in every iteration until it reaches its limit.
-		if ( gameModel.waterSurface.surfaceAmplitude < MAX_SURFACE_AMPLITUDE )
-			gameModel.waterSurface.surfaceAmplitude += 0.008;
+		performanceMetrics.recordTick( System.nanoTime() - startNanos, gameModel );
+		GameEvents.commitTick( tickEvent, gameModel );
+	}
+	
+	/**
+	 * Applies the key events queued since the last iteration, and sets the control keys of the next iteration.<br>
+	 * A key is pressed in the iteration if it is held (according to the latest key states of the queue, which include
+	 * the dropped events too) or any of the events pressed it, so taps shorter than an iteration are not lost.
+	 * Key events of the pause (and all key events if the autopilot plays) only change the held keys.
+	 * The first key event of the iteration (if not an event of the pause) is the input of the iteration,
+	 * its time is published with the snapshot, so the game scene can measure the latency until its effect is presented.
+	 */
+	private void applyKeyEvents() {
+		Arrays.fill( controlKeyStates, false );
 		
-		// Now we check and step the fishes
-		final int netX = gameModel.boat.getX();
-		final int netY = gameModel.boat.getBoatY() + gameModel.boat.getY();
-		final Vector< Fish > deadFishes = new Vector< Fish >();
-		for ( final Fish fish : gameModel.fishes ) {
-			fish.makeStep();
-			
-			// Is the fish being caught?
-			// Fish is caught, if the center point of the fish is inside the net (which is a circle)
-			//                 or if "it would swim into our net"
-			if ( square( fish.getX()                                                   - netX ) + square( fish.getY() - netY ) < NET_SIZE/2*NET_SIZE/2 || 
-			     square( fish.getX() + (fish.headingRight()?+FISH_HEIGHT:-FISH_HEIGHT) - netX ) + square( fish.getY() - netY ) < NET_SIZE/2*NET_SIZE/2 ) { 
-				deadFishes.add( fish );
-				gameModel.fishesCaught++;
-			}
-			
-			// Did the fish just leave the scene? 
-			else if ( fish.getX() < -FISH_WIDTH/2 || fish.getX() > SCENE_WIDTH - 1 + FISH_WIDTH/2 ) {
-				deadFishes.add( fish );
-				gameModel.fishesMissed++;
+		final KeyEventQueue keyEventQueue = gameScene.getKeyEventQueue();
+		boolean             input         = false;
+		while ( keyEventQueue.poll() ) {
+			if ( keyEventQueue.getNanos() - resumeNanos < 0 || autopilot != null )  // The autopilot ignores the keys
+				continue;
+			if ( keyEventQueue.isPressed() )
+				controlKeyStates[ keyEventQueue.getKey() ] = true;
+			if ( !input ) {
+				input      = true;
+				inputNanos = keyEventQueue.getNanos();
+				inputSequence++;
 			}
 		}
-		if ( !deadFishes.isEmpty() )
-			gameModel.fishes.removeAll( deadFishes );
-
-		// Now we check and step the bubbles
-		final Vector< Bubble > deadBubbles = new Vector< Bubble >();
-		for ( final Bubble bubble : gameModel.bubbles ) {
-			bubble.makeStep();
-			// Did the bubble come out of the water?
-			if ( bubble.getY() - BUBBLE_SIZE/2 < gameModel.waterSurface.getWaterLevelAt( bubble.getX() ) )
-				deadBubbles.add( bubble );
-		}		
-		if ( !deadBubbles.isEmpty() )
-			gameModel.bubbles.removeAll( deadBubbles );
 		
-		// We may "launch" a new fish. As the time goes, probability of launching fish goes higher.
-		if ( Math.random() < Math.min( 0.075, 0.025 + gameModel.iterationCounter/20000.0 ) )
-			gameModel.fishes.add( generateNewFish() );
-
-		// A new bubble may appear in the water
-		if ( Math.random() < 0.03 )
-			gameModel.bubbles.add( new Bubble( (int) ( Math.random() * SCENE_WIDTH ) ) );
-		
-		gameModel.iterationCounter++;
+		// Read after the events are polled, so the key states are not older than the events
+		final int keyStates = keyEventQueue.getKeyStates();
+		for ( int i = 0; i < controlKeyStates.length; i++ )
+			controlKeyStates[ i ] |= ( keyStates & 1 << i ) != 0;
 	}
 	
 	/**
-	 * Calculates and returns the square of an integer.
-	 * @param x number whose square must be returned
-	 * @return the square of the specified number
+	 * Publishes a snapshot of the game model to the game scene.
+	 * @param iterationNanos scheduled time of the last iteration
 	 */
-	private int square( final int x ) {
-		return x * x;
+	private void publishSnapshot( final long iterationNanos ) {
+		final RenderSnapshot snapshot = snapshots.getBackBuffer();
+		snapshot.fill( gameModel, iterationNanos );
+		snapshot.inputSequence = inputSequence;
+		snapshot.inputNanos    = inputNanos;
+		gameScene.addSnapshotToDirtyRegion( snapshot );
+		snapshots.publish();
 	}
 	
 	/**
-	 * Generates and returns a new Fish.
-	 * @return a new fish
+	 * Returns the performance metrics of the game.
+	 * @return the performance metrics of the game
 	 */
-	private Fish generateNewFish() {
-		// By FREE I mean the fish can swim there, for example, the fish cannot swim in the air or in the waves.
-		final double  FREE_WATER_RANGE = SCENE_HEIGHT - SEA_LEVEL - MAX_SURFACE_AMPLITUDE - FISH_HEIGHT;
-		final double  MIN_FREE_LEVEL   = SEA_LEVEL + MAX_SURFACE_AMPLITUDE;
-
-		final boolean comingFromLeft = Math.random() < 0.5;  // 50% chance for coming from left, 50% for right
-		final double  startXPos = comingFromLeft ? -FISH_WIDTH/2 : SCENE_WIDTH - 1 + FISH_WIDTH/2;
-		final double  startYPos = MIN_FREE_LEVEL + Math.random() * FREE_WATER_RANGE;
-		// We generate an endYPos for determining vy. We want the new fish to head to this point
-		final double  endYPos   = MIN_FREE_LEVEL + Math.random() * FREE_WATER_RANGE;
-
-		// For vx: 2.2 at the beginning, and maximum value increases 1/20 in every seconds
-		// And if it comes from right, it must be negative
-		final double  vx        = ( comingFromLeft ? 1 :-1 ) * ( 2.2 + Math.random() * ( gameModel.iterationCounter / ITERATIONS_PER_SEC / 20 ) );
-		// v=s/t where s=endYPos-startYPos and t=SCENE_WIDTH/vx.     vy must be this, if we want the fish to head toward endYPos
-		final double  vy        = ( endYPos - startYPos ) / ( (SCENE_WIDTH+FISH_WIDTH) / Math.abs( vx ) );
-		
-		// We now have all parameter for a new fish
-		return new Fish( startXPos, startYPos, vx, vy );
+	public PerformanceMetrics getPerformanceMetrics() {
+		return performanceMetrics;
 	}
 	
 	/**
@@ -247,16 +368,48 @@ public class Fishing {
 	 * Implemented as inverting the gamePaused attribute.
 	 */
 	public void invertGamePauseState() {
-		gamePaused = !gamePaused;
+		synchronized ( pauseLock ) {
+			setGamePaused( !gamePaused );
+		}
+	}
+	
+	/**
+	 * Sets the game pause state, and wakes up the game control if it waits for resuming.
+	 * @param gamePaused the new game pause state
+	 */
+	private void setGamePaused( final boolean gamePaused ) {
+		synchronized ( pauseLock ) {
+			if ( this.gamePaused != gamePaused ) {
+				if ( inputRecorder != null )
+					inputRecorder.recordPauseState( gamePaused );
+				GameEvents.pause( gamePaused, isGameOver() );
+			}
+			this.gamePaused = gamePaused;
+			pauseLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns the interpolation factor between the last two iterations to be used for painting.<br>
+	 * Calculated from the time elapsed since the last iteration, 1.0 (the last iteration) if game is paused.
+	 * @param lastIterationNanos scheduled time of the last iteration (System.nanoTime)
+	 * @return the interpolation factor between the last two iterations, in the range of 0.0..1.0
+	 */
+	public double getInterpolationAlpha( final long lastIterationNanos ) {
+		if ( gamePaused )
+			return 1.0;
+		
+		final double alpha = (double) ( System.nanoTime() - lastIterationNanos ) / iterationNanos;
+		return alpha < 0.0 ? 0.0 : alpha > 1.0 ? 1.0 : alpha;
 	}
 	
 	/**
 	 * Tells whether game is over.<br>
-	 * Game is over when the player misses MAX_FISHES_MISSED or more fishes. 
 	 * @return true if game is over; false otherwise
+	 * @see Simulation#isGameOver()
 	 */
 	public boolean isGameOver() {
-		return gameModel.fishesMissed >= MAX_FISHES_MISSED;
+		return simulation.isGameOver();
 	}
 	
 }
@@ -0,0 +1,166 @@
+package p;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A reset/step environment of the game for training boat controlling agents.<br>
+ * The action of a step is the states of the control keys as bits (bit i is the state of the key with ordinal i
+ * of ControlKeys). The observation is written into a caller provided float buffer (it should be a direct buffer
+ * in native byte order, so the trainer can read it without copying) with the following fixed layout
+ * (coordinates are in pixels of the world):
+ * <pre>
+ *  OBSERVATION_BOAT_X                 x coordinate of the boat
+ *  OBSERVATION_NET_DEPTH              depth of the net (length of the netrope)
+ *  OBSERVATION_WATER_LEVELS + i       water level at x=(i+0.5)*worldWidth/WATER_LEVEL_SAMPLES, 0&lt;=i&lt;WATER_LEVEL_SAMPLES
+ *  OBSERVATION_FISHES + i*FISH_STRIDE the i-th nearest fish to the net, 0&lt;=i&lt;NEAREST_FISHES:
+ *                                     presence (1 or 0 if there are not so many fishes), x, y, vx, vy
+ * </pre>
+ * The reward of a step is the number of the fishes caught minus the number of fishes missed in the step.
+ * The episode is done when the game is over.<br>
+ * Steps do not allocate memory.
+ *
+ * @author Andras Belicza
+ */
+public class FishingEnvironment {
+	
+	/** Number of samples of the water level.                        */
+	public static final int WATER_LEVEL_SAMPLES      = 16;
+	/** Number of the nearest fishes in the observation.             */
+	public static final int NEAREST_FISHES           = 8;
+	/** Number of floats describing a fish in the observation.       */
+	public static final int FISH_STRIDE              = 5;
+	/** Offset of the x coordinate of the boat in the observation.  */
+	public static final int OBSERVATION_BOAT_X       = 0;
+	/** Offset of the depth of the net in the observation.          */
+	public static final int OBSERVATION_NET_DEPTH    = 1;
+	/** Offset of the water level samples in the observation.       */
+	public static final int OBSERVATION_WATER_LEVELS = 2;
+	/** Offset of the nearest fishes in the observation.            */
+	public static final int OBSERVATION_FISHES       = OBSERVATION_WATER_LEVELS + WATER_LEVEL_SAMPLES;
+	/** Number of floats of an observation.                         */
+	public static final int OBSERVATION_SIZE         = OBSERVATION_FISHES + NEAREST_FISHES * FISH_STRIDE;
+	
+	/** The simulation of the game.                                          */
+	private final Simulation simulation;
+	/** States of the control keys of the action, reused in every step.      */
+	private final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+	/** Indices of the nearest fishes, ordered by their distances.           */
+	private final int[]      nearestFishes    = new int   [ NEAREST_FISHES ];
+	/** Square distances of the nearest fishes from the net.                 */
+	private final double[]   nearestDistances = new double[ NEAREST_FISHES ];
+	
+	/**
+	 * Creates a new FishingEnvironment.
+	 * @param seed seed of the first episode
+	 */
+	public FishingEnvironment( final long seed ) {
+		simulation = new Simulation( new GameModel( seed ) );
+	}
+	
+	/**
+	 * Returns the game model of the environment.
+	 * @return the game model of the environment
+	 */
+	public GameModel getGameModel() {
+		return simulation.getGameModel();
+	}
+	
+	/**
+	 * Starts a new episode. The seed of the new episode is generated by the previous episode.
+	 * @param observation buffer to write the observation into
+	 * @param offset      offset of the observation in the buffer
+	 */
+	public void reset( final FloatBuffer observation, final int offset ) {
+		simulation.reset();
+		observe( observation, offset );
+	}
+	
+	/**
+	 * Starts a new episode with the specified seed.
+	 * @param seed        seed of the new episode
+	 * @param observation buffer to write the observation into
+	 * @param offset      offset of the observation in the buffer
+	 */
+	public void reset( final long seed, final FloatBuffer observation, final int offset ) {
+		simulation.reset( seed );
+		observe( observation, offset );
+	}
+	
+	/**
+	 * Makes a step.
+	 * @param action      states of the control keys, bit i is the state of the key with ordinal i
+	 * @param observation buffer to write the observation into
+	 * @param offset      offset of the observation in the buffer
+	 * @return the reward of the step
+	 */
+	public float step( final int action, final FloatBuffer observation, final int offset ) {
+		final GameModel gameModel    = simulation.getGameModel();
+		final int       fishesCaught = gameModel.fishesCaught;
+		final int       fishesMissed = gameModel.fishesMissed;
+		
+		for ( int i = 0; i < controlKeyStates.length; i++ )
+			controlKeyStates[ i ] = ( action & 1 << i ) != 0;
+		simulation.step( controlKeyStates );
+		
+		observe( observation, offset );
+		return ( gameModel.fishesCaught - fishesCaught ) - ( gameModel.fishesMissed - fishesMissed );
+	}
+	
+	/**
+	 * Tells whether the episode is done (game is over).
+	 * @return true if the episode is done; false otherwise
+	 */
+	public boolean isDone() {
+		return simulation.isGameOver();
+	}
+	
+	/**
+	 * Writes the observation of the current state into a buffer. The position of the buffer is not changed.
+	 * @param observation buffer to write the observation into
+	 * @param offset      offset of the observation in the buffer
+	 */
+	public void observe( final FloatBuffer observation, final int offset ) {
+		final GameModel   gameModel = simulation.getGameModel();
+		final Boat        boat      = gameModel.boat;
+		final EntityStore fishes    = gameModel.fishes;
+		
+		observation.put( offset + OBSERVATION_BOAT_X   , (float) boat.x );
+		observation.put( offset + OBSERVATION_NET_DEPTH, (float) boat.y );
+		for ( int i = 0; i < WATER_LEVEL_SAMPLES; i++ )
+			observation.put( offset + OBSERVATION_WATER_LEVELS + i, gameModel.waterSurface.getWaterLevelAt( ( 2*i + 1 ) * gameModel.worldWidth / ( 2*WATER_LEVEL_SAMPLES ) ) );
+		
+		// We select the nearest fishes by insertion into the ordered list of the nearest ones
+		final double netX = boat.x;
+		final double netY = boat.getBoatY() + boat.y;
+		int nearestCount = 0;
+		for ( int i = 0; i < fishes.count; i++ ) {
+			final double distance = ( fishes.x[ i ] - netX ) * ( fishes.x[ i ] - netX ) + ( fishes.y[ i ] - netY ) * ( fishes.y[ i ] - netY );
+			if ( nearestCount == NEAREST_FISHES && distance >= nearestDistances[ NEAREST_FISHES - 1 ] )
+				continue;
+			
+			int j = nearestCount < NEAREST_FISHES ? nearestCount++ : NEAREST_FISHES - 1;
+			for ( ; j > 0 && nearestDistances[ j - 1 ] > distance; j-- ) {
+				nearestDistances[ j ] = nearestDistances[ j - 1 ];
+				nearestFishes   [ j ] = nearestFishes   [ j - 1 ];
+			}
+			nearestDistances[ j ] = distance;
+			nearestFishes   [ j ] = i;
+		}
+		
+		for ( int j = 0; j < NEAREST_FISHES; j++ ) {
+			final int base = offset + OBSERVATION_FISHES + j * FISH_STRIDE;
+			if ( j < nearestCount ) {
+				final int i = nearestFishes[ j ];
+				observation.put( base    , 1.0f );
+				observation.put( base + 1, (float) fishes.x[ i ] );
+				observation.put( base + 2, (float) fishes.y[ i ] );
+				observation.put( base + 3, (float) fishes.vx[ i ] );
+				observation.put( base + 4, (float) fishes.vy[ i ] );
+			}
+			else
+				for ( int k = 0; k < FISH_STRIDE; k++ )
+					observation.put( base + k, 0.0f );
+		}
+	}
+	
+}
@@ -0,0 +1,154 @@
+package p;
+
+import jdk.jfr.EventType;
+
+/**
+ * Creates and commits the flight recorder events of the game, see GameEvents.<br>
+ * This is the only class (besides the event classes) depending on the flight recorder,
+ * it must only be used if the jdk.jfr module is available. Events are only created if they are enabled.
+ * 
+ * @author Andras Belicza
+ */
+class FlightRecorderEvents {
+	
+	/** Event type of the iterations.      */
+	private static final EventType TICK_EVENT_TYPE       = EventType.getEventType( TickEvent     .class );
+	/** Event type of the painted frames.  */
+	private static final EventType PAINT_EVENT_TYPE      = EventType.getEventType( PaintEvent    .class );
+	/** Event type of pausing and resuming. */
+	private static final EventType PAUSE_EVENT_TYPE      = EventType.getEventType( PauseEvent    .class );
+	/** Event type of the new fishes.      */
+	private static final EventType FISH_SPAWN_EVENT_TYPE = EventType.getEventType( FishSpawnEvent.class );
+	/** Event type of the caught fishes.   */
+	private static final EventType FISH_CATCH_EVENT_TYPE = EventType.getEventType( FishCatchEvent.class );
+	/** Event type of the missed fishes.   */
+	private static final EventType FISH_MISS_EVENT_TYPE  = EventType.getEventType( FishMissEvent .class );
+	
+	/**
+	 * No instances are needed.
+	 */
+	private FlightRecorderEvents() {
+	}
+	
+	/**
+	 * Begins a tick event if it is enabled.
+	 * @return the begun tick event; null if it is disabled
+	 */
+	public static Object beginTick() {
+		if ( !TICK_EVENT_TYPE.isEnabled() )
+			return null;
+		
+		final TickEvent tickEvent = new TickEvent();
+		tickEvent.begin();
+		return tickEvent;
+	}
+	
+	/**
+	 * Commits a tick event.
+	 * @param event     the tick event returned by beginTick()
+	 * @param gameModel the game model after the iteration
+	 */
+	public static void commitTick( final Object event, final GameModel gameModel ) {
+		final TickEvent tickEvent = (TickEvent) event;
+		if ( tickEvent.shouldCommit() ) {
+			tickEvent.iteration   = gameModel.iterationCounter;
+			tickEvent.fishCount   = gameModel.fishes.count;
+			tickEvent.bubbleCount = gameModel.bubbles.count;
+			tickEvent.commit();
+		}
+	}
+	
+	/**
+	 * Begins a paint event if it is enabled.
+	 * @return the begun paint event; null if it is disabled
+	 */
+	public static Object beginPaint() {
+		if ( !PAINT_EVENT_TYPE.isEnabled() )
+			return null;
+		
+		final PaintEvent paintEvent = new PaintEvent();
+		paintEvent.begin();
+		return paintEvent;
+	}
+	
+	/**
+	 * Commits a paint event.
+	 * @param event       the paint event returned by beginPaint()
+	 * @param dirtyWidth  width of the painted (dirty) region
+	 * @param dirtyHeight height of the painted (dirty) region
+	 */
+	public static void commitPaint( final Object event, final int dirtyWidth, final int dirtyHeight ) {
+		final PaintEvent paintEvent = (PaintEvent) event;
+		if ( paintEvent.shouldCommit() ) {
+			paintEvent.dirtyWidth  = dirtyWidth;
+			paintEvent.dirtyHeight = dirtyHeight;
+			paintEvent.dirtyArea   = dirtyWidth * dirtyHeight;
+			paintEvent.commit();
+		}
+	}
+	
+	/**
+	 * Commits a pause event if it is enabled.
+	 * @param paused   true if the game was paused, false if it was resumed
+	 * @param gameOver tells whether game is over
+	 */
+	public static void pause( final boolean paused, final boolean gameOver ) {
+		if ( PAUSE_EVENT_TYPE.isEnabled() ) {
+			final PauseEvent pauseEvent = new PauseEvent();
+			pauseEvent.paused   = paused;
+			pauseEvent.gameOver = gameOver;
+			pauseEvent.commit();
+		}
+	}
+	
+	/**
+	 * Commits a fish spawn event if it is enabled.
+	 * @param x  x coordinate of the new fish
+	 * @param y  y coordinate of the new fish
+	 * @param vx horizontal velocity of the fish
+	 * @param vy vertical velocity of the fish
+	 */
+	public static void fishSpawn( final double x, final double y, final double vx, final double vy ) {
+		if ( FISH_SPAWN_EVENT_TYPE.isEnabled() ) {
+			final FishSpawnEvent spawnEvent = new FishSpawnEvent();
+			spawnEvent.x  = x;
+			spawnEvent.y  = y;
+			spawnEvent.vx = vx;
+			spawnEvent.vy = vy;
+			spawnEvent.commit();
+		}
+	}
+	
+	/**
+	 * Commits a fish catch event if it is enabled.
+	 * @param x            x coordinate of the caught fish
+	 * @param y            y coordinate of the caught fish
+	 * @param fishesCaught number of caught fishes including this one
+	 */
+	public static void fishCatch( final int x, final int y, final int fishesCaught ) {
+		if ( FISH_CATCH_EVENT_TYPE.isEnabled() ) {
+			final FishCatchEvent event = new FishCatchEvent();
+			event.x            = x;
+			event.y            = y;
+			event.fishesCaught = fishesCaught;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Commits a fish miss event if it is enabled.
+	 * @param x            x coordinate of the missed fish
+	 * @param y            y coordinate of the missed fish
+	 * @param fishesMissed number of missed fishes including this one
+	 */
+	public static void fishMiss( final int x, final int y, final int fishesMissed ) {
+		if ( FISH_MISS_EVENT_TYPE.isEnabled() ) {
+			final FishMissEvent event = new FishMissEvent();
+			event.x            = x;
+			event.y            = y;
+			event.fishesMissed = fishesMissed;
+			event.commit();
+		}
+	}
+	
+}
@@ -0,0 +1,119 @@
+package p;
+
+/**
+ * Emits the flight recorder events of the game.<br>
+ * This class does not depend on the flight recorder: the events are emitted by FlightRecorderEvents,
+ * which is only loaded if the jdk.jfr module is available, so the game runs without it too.
+ * Events which are disabled are not created, so emitting them does not allocate memory.
+ * Timed events are begun by a begin method returning the event as an Object (null if it is disabled),
+ * and committed by passing it to the commit method.
+ * 
+ * @author Andras Belicza
+ */
+class GameEvents {
+	
+	/** Tells whether the flight recorder is available. */
+	private static final boolean AVAILABLE = isFlightRecorderAvailable();
+	
+	/**
+	 * No instances are needed.
+	 */
+	private GameEvents() {
+	}
+	
+	/**
+	 * Tells whether the flight recorder (the jdk.jfr module) is available.
+	 * @return true if the flight recorder is available; false otherwise
+	 */
+	private static boolean isFlightRecorderAvailable() {
+		try {
+			Class.forName( "jdk.jfr.EventType" );
+			return true;
+		}
+		catch ( final ClassNotFoundException cnfe ) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Begins a tick event (the calculation of an iteration).
+	 * @return the tick event; null if it is disabled
+	 */
+	public static Object beginTick() {
+		return AVAILABLE ? FlightRecorderEvents.beginTick() : null;
+	}
+	
+	/**
+	 * Commits a tick event.
+	 * @param tickEvent the tick event returned by beginTick(); may be null
+	 * @param gameModel the game model after the iteration
+	 */
+	public static void commitTick( final Object tickEvent, final GameModel gameModel ) {
+		if ( tickEvent != null )
+			FlightRecorderEvents.commitTick( tickEvent, gameModel );
+	}
+	
+	/**
+	 * Begins a paint event (painting a frame of the game scene).
+	 * @return the paint event; null if it is disabled
+	 */
+	public static Object beginPaint() {
+		return AVAILABLE ? FlightRecorderEvents.beginPaint() : null;
+	}
+	
+	/**
+	 * Commits a paint event.
+	 * @param paintEvent  the paint event returned by beginPaint(); may be null
+	 * @param dirtyWidth  width of the painted (dirty) region
+	 * @param dirtyHeight height of the painted (dirty) region
+	 */
+	public static void commitPaint( final Object paintEvent, final int dirtyWidth, final int dirtyHeight ) {
+		if ( paintEvent != null )
+			FlightRecorderEvents.commitPaint( paintEvent, dirtyWidth, dirtyHeight );
+	}
+	
+	/**
+	 * Emits a pause event if it is enabled.
+	 * @param paused   true if the game was paused, false if it was resumed
+	 * @param gameOver tells whether game is over
+	 */
+	public static void pause( final boolean paused, final boolean gameOver ) {
+		if ( AVAILABLE )
+			FlightRecorderEvents.pause( paused, gameOver );
+	}
+	
+	/**
+	 * Emits a fish spawn event if it is enabled.
+	 * @param x  x coordinate of the new fish
+	 * @param y  y coordinate of the new fish
+	 * @param vx horizontal velocity of the fish
+	 * @param vy vertical velocity of the fish
+	 */
+	public static void fishSpawn( final double x, final double y, final double vx, final double vy ) {
+		if ( AVAILABLE )
+			FlightRecorderEvents.fishSpawn( x, y, vx, vy );
+	}
+	
+	/**
+	 * Emits a fish catch event if it is enabled.
+	 * @param x            x coordinate of the caught fish
+	 * @param y            y coordinate of the caught fish
+	 * @param fishesCaught number of caught fishes including this one
+	 */
+	public static void fishCatch( final int x, final int y, final int fishesCaught ) {
+		if ( AVAILABLE )
+			FlightRecorderEvents.fishCatch( x, y, fishesCaught );
+	}
+	
+	/**
+	 * Emits a fish miss event if it is enabled.
+	 * @param x            x coordinate of the missed fish
+	 * @param y            y coordinate of the missed fish
+	 * @param fishesMissed number of missed fishes including this one
+	 */
+	public static void fishMiss( final int x, final int y, final int fishesMissed ) {
+		if ( AVAILABLE )
+			FlightRecorderEvents.fishMiss( x, y, fishesMissed );
+	}
+	
+}
@@ -1,7 +1,5 @@
 package p;
 
-import java.util.Vector;
-
 /**
  * This is the game model. Holds the datas for a Fishing game.
  * 
@@ -9,40 +7,161 @@ import java.util.Vector;
  */
 class GameModel {
 
+	/** Default width of the world in pixels (the width of the game scene).   */
+	public static final int   DEFAULT_WORLD_WIDTH  = 500;
+	/** Default height of the world in pixels (the height of the game scene). */
+	public static final int   DEFAULT_WORLD_HEIGHT = 500;
+	
+	/** Width of the world in pixels.                       */
+	public final int          worldWidth;
+	/** Height of the world in pixels.                      */
+	public final int          worldHeight;
+	/** Number of iterations per second.                    */
+	public final int          iterationsPerSec;
+	/** Length of an iteration relative to the iteration the game is tuned for (Simulation.ITERATIONS_PER_SEC);
+	 * the moves, the steps and the chances of an iteration are scaled by it, so the game has the same speed with any iteration rate. */
+	public final double       timeStep;
 	/** The water surface of the 'sea'.                     */
-	public WaterSurface     waterSurface;
+	public final WaterSurface waterSurface;
 	/** Boat of the game.                                   */
-	public Boat             boat;
-	/** Vector of the fishes.                               */
-	public Vector< Fish   > fishes;
-	/** Vector of the bubbles.                              */
-	public Vector< Bubble > bubbles;
-	/** Number of fishes the player caught.                 */ 
-	public int              fishesCaught;
+	public final Boat         boat;
+	/** Store of the fishes.                                */
+	public final EntityStore  fishes       = new EntityStore();
+	/** Store of the bubbles.                               */
+	public final EntityStore  bubbles      = new EntityStore();
+	/** Random number generator of the game.                */
+	public final FastRandom   random       = new FastRandom( 0l );
+	/** Seed of the random number generator of the game.    */
+	public long               seed;
 	/** Number of fishes the player caught.                 */ 
-	public int              fishesMissed;
+	public int                fishesCaught;
+	/** Number of fishes the player missed.                 */ 
+	public int                fishesMissed;
 	/** Iteration counter, tells which iteration are we in. */
-	public int              iterationCounter;
+	public int                iterationCounter;
 	
 	/**
-	 * Creates a new GameModel.
-	 * Simply calls the init() method.
+	 * Creates a new GameModel with a new seed.
 	 */
 	public GameModel() {
-		init();
+		this( FastRandom.newSeed() );
+	}
+	
+	/**
+	 * Creates a new GameModel with the default world size.
+	 * @param seed seed of the random number generator of the first game
+	 */
+	public GameModel( final long seed ) {
+		this( seed, DEFAULT_WORLD_WIDTH, DEFAULT_WORLD_HEIGHT );
 	}
 	
 	/**
-	 * Inits the game model, so a new game can begin.
+	 * Creates a new GameModel with the default wave spectrum.
+	 * @param seed        seed of the random number generator of the first game
+	 * @param worldWidth  width of the world in pixels
+	 * @param worldHeight height of the world in pixels
+	 */
+	public GameModel( final long seed, final int worldWidth, final int worldHeight ) {
+		this( seed, worldWidth, worldHeight, WaveSpectrum.DEFAULT );
+	}
+	
+	/**
+	 * Creates a new GameModel with the iteration rate the game is tuned for.
+	 * @param seed        seed of the random number generator of the first game
+	 * @param worldWidth  width of the world in pixels
+	 * @param worldHeight height of the world in pixels
+	 * @param spectrum    wave spectrum of the water surface
+	 */
+	public GameModel( final long seed, final int worldWidth, final int worldHeight, final WaveSpectrum spectrum ) {
+		this( seed, worldWidth, worldHeight, spectrum, Simulation.ITERATIONS_PER_SEC );
+	}
+	
+	/**
+	 * Creates a new GameModel without a sine table.
+	 * @param seed             seed of the random number generator of the first game
+	 * @param worldWidth       width of the world in pixels
+	 * @param worldHeight      height of the world in pixels
+	 * @param spectrum         wave spectrum of the water surface
+	 * @param iterationsPerSec number of iterations per second (at least 1)
+	 */
+	public GameModel( final long seed, final int worldWidth, final int worldHeight, final WaveSpectrum spectrum, final int iterationsPerSec ) {
+		this( seed, worldWidth, worldHeight, spectrum, iterationsPerSec, 0 );
+	}
+	
+	/**
+	 * Creates a new GameModel.
+	 * Creates the water surface and the boat for the world size, then calls the init(long) method.
+	 * @param seed             seed of the random number generator of the first game
+	 * @param worldWidth       width of the world in pixels
+	 * @param worldHeight      height of the world in pixels
+	 * @param spectrum         wave spectrum of the water surface
+	 * @param iterationsPerSec number of iterations per second (at least 1)
+	 * @param sineTableSize    if positive, size of the sine table of a single-component water surface (see WaterSurface)
+	 */
+	public GameModel( final long seed, final int worldWidth, final int worldHeight, final WaveSpectrum spectrum, final int iterationsPerSec,
+	                  final int sineTableSize ) {
+		if ( iterationsPerSec < 1 )
+			throw new IllegalArgumentException( "The number of iterations per second must be positive!" );
+		this.worldWidth       = worldWidth;
+		this.worldHeight      = worldHeight;
+		this.iterationsPerSec = iterationsPerSec;
+		timeStep              = (double) Simulation.ITERATIONS_PER_SEC / iterationsPerSec;
+		waterSurface          = new WaterSurface( worldWidth, spectrum, timeStep, sineTableSize );
+		boat                  = new Boat( waterSurface, worldWidth, worldHeight, timeStep );
+		init( seed );
+	}
+	
+	/**
+	 * Inits the game model, so a new game can begin.<br>
+	 * The seed of the new game is generated by the random number generator of the previous game,
+	 * so a series of games can be re-run from the seed of the first game.
 	 */
 	public void init() {
-		fishes           = new Vector< Fish   >();
-		bubbles          = new Vector< Bubble >();
-		waterSurface     = new WaterSurface();
-		boat             = new Boat( waterSurface );
+		init( random.nextLong() );
+	}
+	
+	/**
+	 * Inits the game model, so a new game can begin.<br>
+	 * The same seed (and the same inputs) result in the same game.<br>
+	 * The objects of the model are reused (the stores keep their capacity), so no allocation is needed.
+	 * @param seed seed of the random number generator of the new game
+	 */
+	public void init( final long seed ) {
+		this.seed = seed;
+		random.setState( seed );
+		fishes.clear();
+		bubbles.clear();
+		waterSurface.init();
+		boat.init();
 		fishesCaught     = 0;
 		fishesMissed     = 0;
 		iterationCounter = 0;
 	}
 	
+	/**
+	 * Copies the state of another game model into this one. The world sizes, the wave spectra, the iteration rates and the sine tables of the models must be the same.<br>
+	 * The objects of this model are reused, no allocation is needed (unless the entity stores have to grow).
+	 * @param gameModel the game model to be copied
+	 */
+	public void copyFrom( final GameModel gameModel ) {
+		fishes.copyFrom( gameModel.fishes );
+		bubbles.copyFrom( gameModel.bubbles );
+		waterSurface.copyFrom( gameModel.waterSurface );
+		boat.copyPositionFrom( gameModel.boat );
+		random.setState( gameModel.random.getState() );
+		seed             = gameModel.seed;
+		fishesCaught     = gameModel.fishesCaught;
+		fishesMissed     = gameModel.fishesMissed;
+		iterationCounter = gameModel.iterationCounter;
+	}
+	
+	/**
+	 * Tells whether game is over.<br>
+	 * Game is over when the player misses MAX_FISHES_MISSED or more fishes. 
+	 * @return true if game is over; false otherwise
+	 */
+	public boolean isGameOver() {
+		return fishesMissed >= Simulation.MAX_FISHES_MISSED;
+	}
+	
 }
@@ -0,0 +1,277 @@
+package p;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves and restores the game models of simulations into/from binary snapshot files.<br>
+ * A snapshot is built in (or read into) a byte buffer with a single file channel operation, and the columns of the
+ * entity stores are transferred in bulk (no object serialization per entity), so a model with thousands of entities
+ * is saved or restored quickly. The files are not memory mapped: a snapshot is small, and a mapped file cannot be
+ * resized or deleted on Windows until the mapping is garbage collected. A restored model continues exactly the same way as the saved one
+ * (the state of the random number generator and the number of the capture sub-steps of the simulation are saved too,
+ * the cached columns of the water surface are not).<br>
+ * <br>
+ * Format of the file (little endian, every section is aligned to 8 bytes):
+ * <ul>
+ * <li>MAGIC (int), VERSION (short), 0 (short)
+ * <li>worldWidth, worldHeight (ints; since version 2, version 1 files have the default world size)
+ * <li>number of the wave components of the water surface, number of the capture sub-steps of an iteration
+ *     (ints; since version 3 and version 4, older files have a single component and a single sub-step)
+ * <li>number of iterations per second, size of the sine table of the water surface
+ *     (ints; since version 5 and version 6, older files have Simulation.ITERATIONS_PER_SEC and no sine table)
+ * <li>seed, state of the random number generator (longs)
+ * <li>fishesCaught, fishesMissed, iterationCounter, 0 (ints)
+ * <li>surfacePhase, surfaceAmplitude, prevSurfacePhase, prevSurfaceAmplitude of the water surface (doubles)
+ * <li>x, y, prevX, prevY of the boat (doubles)
+ * <li>fishes, then bubbles: count, 0 (ints), followed by the x, y, prevX, prevY, vx, vy, phase columns (count doubles each)
+ * </ul>
+ * 
+ * @author Andras Belicza
+ */
+class GameModelSnapshot {
+
+	/** Magic number at the beginning of the file ("FSHS"). */
+	public  static final int   MAGIC       = 0x46534853;
+	/** Version of the file format.                          */
+	public  static final short VERSION     = 6;
+	/** Size of the fixed part of the file.                  */
+	private static final int   HEADER_SIZE = 8 + 2*4 + 2*4 + 2*4 + 2*8 + 4*4 + 4*8 + 4*8;
+	/** Size of the fixed part of a version 1 file.          */
+	private static final int   HEADER_SIZE_V1 = HEADER_SIZE - 2*4 - 2*4 - 2*4;
+	/** Number of columns of an entity store.                */
+	private static final int   COLUMNS     = 7;
+	
+	/**
+	 * No instances of this class, only static methods.
+	 */
+	private GameModelSnapshot() {
+	}
+	
+	/**
+	 * Returns the size of the snapshot of a game model.
+	 * @param gameModel the game model
+	 * @return the size of the snapshot of the game model in bytes
+	 */
+	public static int getSize( final GameModel gameModel ) {
+		return HEADER_SIZE + getSize( gameModel.fishes ) + getSize( gameModel.bubbles );
+	}
+	
+	/**
+	 * Saves the game model of a simulation into a snapshot file. An existing file is overwritten.<br>
+	 * The file is not forced to the storage device, the operating system writes it in the background.
+	 * @param simulation the simulation whose game model to be saved
+	 * @param file       the snapshot file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save( final Simulation simulation, final File file ) throws IOException {
+		final GameModel  gameModel = simulation.getGameModel();
+		final ByteBuffer buffer    = ByteBuffer.allocate( getSize( gameModel ) ).order( ByteOrder.LITTLE_ENDIAN );
+		
+		buffer.putInt   ( MAGIC   );
+		buffer.putShort ( VERSION );
+		buffer.putShort ( (short) 0 );
+		buffer.putInt   ( gameModel.worldWidth  );
+		buffer.putInt   ( gameModel.worldHeight );
+		buffer.putInt   ( gameModel.waterSurface.getSpectrum().getComponents() );
+		buffer.putInt   ( simulation.getSubSteps() );
+		buffer.putInt   ( gameModel.iterationsPerSec );
+		buffer.putInt   ( gameModel.waterSurface.getSineTableSize() );
+		buffer.putLong  ( gameModel.seed );
+		buffer.putLong  ( gameModel.random.getState() );
+		buffer.putInt   ( gameModel.fishesCaught );
+		buffer.putInt   ( gameModel.fishesMissed );
+		buffer.putInt   ( gameModel.iterationCounter );
+		buffer.putInt   ( 0 );
+		
+		final WaterSurface waterSurface = gameModel.waterSurface;
+		buffer.putDouble( waterSurface.surfacePhase         );
+		buffer.putDouble( waterSurface.surfaceAmplitude     );
+		buffer.putDouble( waterSurface.prevSurfacePhase     );
+		buffer.putDouble( waterSurface.prevSurfaceAmplitude );
+		
+		final Boat boat = gameModel.boat;
+		buffer.putDouble( boat.x     );
+		buffer.putDouble( boat.y     );
+		buffer.putDouble( boat.prevX );
+		buffer.putDouble( boat.prevY );
+		
+		putStore( buffer, gameModel.fishes  );
+		putStore( buffer, gameModel.bubbles );
+		buffer.flip();
+		
+		final FileOutputStream output = new FileOutputStream( file );
+		try {
+			final FileChannel channel = output.getChannel();
+			while ( buffer.hasRemaining() )
+				channel.write( buffer );
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	/**
+	 * Restores the game model of a simulation from a snapshot file, and sets the number of the capture sub-steps of the simulation.<br>
+	 * The objects of the game model are reused (the entity stores grow if needed).
+	 * The world size, the number of the wave components, the iteration rate and the sine table size of the game model must be the same as those of the snapshot.
+	 * @param file       the snapshot file
+	 * @param simulation the simulation whose game model to restore into
+	 * @throws IOException if the file cannot be read, it is not a valid snapshot, or its world size, number of wave components, iteration rate or sine table size differs
+	 */
+	public static void restore( final File file, final Simulation simulation ) throws IOException {
+		final GameModel  gameModel = simulation.getGameModel();
+		final ByteBuffer buffer;
+		final FileInputStream input = new FileInputStream( file );
+		try {
+			final FileChannel channel = input.getChannel();
+			final long        size    = channel.size();
+			if ( size < HEADER_SIZE_V1 || size > Integer.MAX_VALUE )
+				throw new IOException( "Invalid snapshot size: " + size );
+			buffer = ByteBuffer.allocate( (int) size ).order( ByteOrder.LITTLE_ENDIAN );
+			while ( buffer.hasRemaining() )
+				if ( channel.read( buffer ) < 0 )
+					throw new IOException( "Unexpected end of snapshot: " + file );
+			buffer.flip();
+		}
+		finally {
+			input.close();
+		}
+		
+		try {
+			if ( buffer.getInt() != MAGIC )
+				throw new IOException( "Not a Fishing snapshot: " + file );
+			final short version = buffer.getShort();
+			if ( version < 1 || version > VERSION )
+				throw new IOException( "Unsupported snapshot version: " + version );
+			buffer.getShort();
+			
+			final int worldWidth  = version < 2 ? GameModel.DEFAULT_WORLD_WIDTH  : buffer.getInt();
+			final int worldHeight = version < 2 ? GameModel.DEFAULT_WORLD_HEIGHT : buffer.getInt();
+			if ( worldWidth != gameModel.worldWidth || worldHeight != gameModel.worldHeight )
+				throw new IOException( "World size of the snapshot (" + worldWidth + "x" + worldHeight + ") differs from the world size of the game ("
+					+ gameModel.worldWidth + "x" + gameModel.worldHeight + ")" );
+			
+			final int waveComponents = version < 3 ? 1 : buffer.getInt();
+			final int subStepsField  = version < 3 ? 0 : buffer.getInt();
+			final int subSteps       = version < 4 ? 1 : subStepsField;  // Version 3 files have 0 in place of the sub-steps
+			if ( waveComponents != gameModel.waterSurface.getSpectrum().getComponents() )
+				throw new IOException( "Wave components of the snapshot (" + waveComponents + ") differ from the wave components of the game ("
+					+ gameModel.waterSurface.getSpectrum().getComponents() + ")" );
+			if ( subSteps < 1 )
+				throw new IOException( "Invalid number of sub-steps: " + subSteps );
+			
+			final int iterationsPerSec   = version < 5 ? Simulation.ITERATIONS_PER_SEC : buffer.getInt();
+			final int sineTableSizeField = version < 5 ? 0 : buffer.getInt();
+			final int sineTableSize      = version < 6 ? 0 : sineTableSizeField;  // Version 5 files have 0 in place of the sine table size
+			if ( iterationsPerSec != gameModel.iterationsPerSec )
+				throw new IOException( "Iteration rate of the snapshot (" + iterationsPerSec + ") differs from the iteration rate of the game ("
+					+ gameModel.iterationsPerSec + ")" );
+			if ( sineTableSize != gameModel.waterSurface.getSineTableSize() )
+				throw new IOException( "Sine table size of the snapshot (" + sineTableSize + ") differs from the sine table size of the game ("
+					+ gameModel.waterSurface.getSineTableSize() + ")" );
+			simulation.setSubSteps( subSteps );
+			
+			gameModel.seed             = buffer.getLong();
+			gameModel.random.setState( buffer.getLong() );
+			gameModel.fishesCaught     = buffer.getInt();
+			gameModel.fishesMissed     = buffer.getInt();
+			gameModel.iterationCounter = buffer.getInt();
+			buffer.getInt();
+			
+			final WaterSurface waterSurface = gameModel.waterSurface;
+			waterSurface.surfacePhase         = buffer.getDouble();
+			waterSurface.surfaceAmplitude     = buffer.getDouble();
+			waterSurface.prevSurfacePhase     = buffer.getDouble();
+			waterSurface.prevSurfaceAmplitude = buffer.getDouble();
+			waterSurface.invalidateCache();
+			
+			final Boat boat = gameModel.boat;
+			boat.x     = buffer.getDouble();
+			boat.y     = buffer.getDouble();
+			boat.prevX = buffer.getDouble();
+			boat.prevY = buffer.getDouble();
+			
+			getStore( buffer, gameModel.fishes  );
+			getStore( buffer, gameModel.bubbles );
+		}
+		catch ( final RuntimeException re ) {  // BufferUnderflowException, IllegalArgumentException
+			throw new IOException( "Invalid snapshot: " + file, re );
+		}
+	}
+	
+	/**
+	 * Returns the size of an entity store in the snapshot.
+	 * @param store the entity store
+	 * @return the size of the entity store in the snapshot in bytes
+	 */
+	private static int getSize( final EntityStore store ) {
+		return 8 + COLUMNS * 8 * store.count;
+	}
+	
+	/**
+	 * Puts an entity store into a buffer.
+	 * @param buffer buffer to put into
+	 * @param store  the entity store to be put
+	 */
+	private static void putStore( final ByteBuffer buffer, final EntityStore store ) {
+		buffer.putInt( store.count );
+		buffer.putInt( 0 );
+		putColumn( buffer, store.x    , store.count );
+		putColumn( buffer, store.y    , store.count );
+		putColumn( buffer, store.prevX, store.count );
+		putColumn( buffer, store.prevY, store.count );
+		putColumn( buffer, store.vx   , store.count );
+		putColumn( buffer, store.vy   , store.count );
+		putColumn( buffer, store.phase, store.count );
+	}
+	
+	/**
+	 * Gets an entity store from a buffer.
+	 * @param buffer buffer to get from
+	 * @param store  the entity store to get into
+	 */
+	private static void getStore( final ByteBuffer buffer, final EntityStore store ) {
+		final int count = buffer.getInt();
+		buffer.getInt();
+		if ( count < 0 || count > buffer.remaining() / ( COLUMNS * 8 ) )
+			throw new IllegalArgumentException( "Invalid entity count: " + count );
+		
+		store.setCount( count );
+		getColumn( buffer, store.x    , count );
+		getColumn( buffer, store.y    , count );
+		getColumn( buffer, store.prevX, count );
+		getColumn( buffer, store.prevY, count );
+		getColumn( buffer, store.vx   , count );
+		getColumn( buffer, store.vy   , count );
+		getColumn( buffer, store.phase, count );
+	}
+	
+	/**
+	 * Puts the first count elements of a column into a buffer in bulk.
+	 * @param buffer buffer to put into
+	 * @param column the column to be put
+	 * @param count  number of elements to be put
+	 */
+	private static void putColumn( final ByteBuffer buffer, final double[] column, final int count ) {
+		buffer.asDoubleBuffer().put( column, 0, count );
+		buffer.position( buffer.position() + count * 8 );
+	}
+	
+	/**
+	 * Gets count elements of a column from a buffer in bulk.
+	 * @param buffer buffer to get from
+	 * @param column the column to get into
+	 * @param count  number of elements to get
+	 */
+	private static void getColumn( final ByteBuffer buffer, final double[] column, final int count ) {
+		buffer.asDoubleBuffer().get( column, 0, count );
+		buffer.position( buffer.position() + count * 8 );
+	}
+	
+}
@@ -2,35 +2,37 @@ package p;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JComponent;
 
-import static p.Boat.BOAT_HEIGHT;
-import static p.Boat.BOAT_WIDTH;
 import static p.Boat.NET_SIZE;
-import static p.Fish.FISH_HEIGHT;
-import static p.Fish.FISH_WIDTH;
 import static p.Bubble.BUBBLE_SIZE;
+import static p.SpriteAtlas.FISH_ANCHOR;
 
 /**
  * The game scene.<br>
- * This is the view layer of Fishing in the MVC arhitecture. 
+ * This is the view layer of Fishing in the MVC arhitecture.<br>
+ * The scene is a viewport of the world, seen through the camera of the rendered snapshot.
+ * Only the visible parts of the world are drawn (the columns of the water surface in the viewport,
+ * the fishes and bubbles overlapping it), so the cost of drawing depends on the size of the scene, not of the world.
  *  
  * @author Andras Belicza
  */
 class GameScene extends JComponent implements KeyListener {
 	
-	/** Width of the game scene in pixels.                                                  */
-	public  static final int     SCENE_WIDTH              = 500; 
-	/** Height of the game scene in pixels.                                                 */
-	public  static final int     SCENE_HEIGHT             = 500;
+	/** Width of the game scene (the viewport of the world) in pixels.                      */
+	public  static final int     SCENE_WIDTH              = GameModel.DEFAULT_WORLD_WIDTH; 
+	/** Height of the game scene (the viewport of the world) in pixels.                     */
+	public  static final int     SCENE_HEIGHT             = GameModel.DEFAULT_WORLD_HEIGHT;
 	/** Color of the air at the left side of the scene (nice red => sunset color).          */
 	private static final Color   LEFT_AIR_COLOR           = new Color( 187,   7,   7 );
 	/** Color of the air at the right ide of the scene (nice orange => sunrise color).      */
@@ -50,80 +52,73 @@ class GameScene extends JComponent implements KeyListener {
 	/** Surface following degree of the boat (for example 0.7 means 70%: if surface 
 	 * deviates 100 degrees from the horizontal, the boat will deviate 70 degrees).         */
 	private static final double  SURFACE_FOLLOWING_DEGREE = 0.7;
-	/** Degree of sinking of the boat to be in rest (for example 0.15 means 15%).           */
-	private static final double  SINKING_DEGREE           = 0.15;
+	/** Max ratio of the dirty area and the area of the scene; above this the whole scene is repainted. */
+	private static final double  MAX_DIRTY_AREA_RATIO     = 0.6;
 	/** Text for game paused message.                                                       */
 	private static final String  GAME_PAUSED_TEXT         = "Game paused";
 	/** Text for game over message.                                                         */
 	private static final String  GAME_OVER_TEXT           = "Game over!";
 	/** Text for resuming the game message.                                                 */
 	private static final String  KEY_TO_CONTINUE_TEXT     = "Press the SPACE key to start";
+	/** Number of text lines of the performance info.                                       */
+	private static final int     PERFORMANCE_INFO_LINES   = 6;
+	/** Capacity of the key event queue.                                                    */
+	private static final int     KEY_EVENT_QUEUE_CAPACITY = 256;
 	
-	/** Polygon of the boat.                                                                */
-	private static final Polygon BOAT_POLYGON;
-	/** Polygon of the fish heading right.                                                  */
-	private static final Polygon FISH_POLYGON_RIGHT;
-	/** Polygon of the fish heading left.                                                   */
-	private static final Polygon FISH_POLYGON_LEFT;
-
-	/**
-	 * Static initializator for creating the polygon of the boat and the fish.
-	 */
-	static {
-		// The X and Y sizes of the boat in a 1x1 sized square.
-		final double[] boatXs = new double[] { 0.0, 1.0/6.0, 5.0/6.0, 1.0, 4.0/6.0, 3.0/6.0, 2.0/6.0 };
-		final double[] boatYs = new double[] { 0.5, 1.0    , 1.0    , 0.5, 0.5    , 0.0    , 0.5     };
-
-		BOAT_POLYGON = new Polygon();
-		for ( int i = 0; i < boatXs.length; i++ )  // All we have to do is to zoom the boat to its game size and to move to its center
-			BOAT_POLYGON.addPoint( (int) ( boatXs[ i ] * BOAT_WIDTH ) - BOAT_WIDTH/2, (int) ( boatYs[ i ] * BOAT_HEIGHT ) - BOAT_HEIGHT/2 );
-
-		// The X and Y sizes of the fish in a 1x1 sized  square.
-		final double[] fishXs = new double[] { 1.0, 0.9 , 0.8, 0.55, 0.4, 0.25, 0.0, 0.0, 0.25, 0.4, 0.55, 0.75, 0.9, 1.0  };
-		final double[] fishYs = new double[] { 0.3, 0.15, 0.0, 0.0 , 0.2, 0.35, 0.0, 1.0, 0.65, 0.8, 1.0 , 1.0 , 0.8, 0.65 };
-		FISH_POLYGON_RIGHT = new Polygon();
-		for ( int i = 0; i < fishXs.length; i++ )  // All we have to do is to zoom the fish to its game size and to move to its center
-			FISH_POLYGON_RIGHT.addPoint( (int) ( fishXs[ i ] * FISH_WIDTH ) - FISH_WIDTH/2, (int) ( fishYs[ i ] * FISH_HEIGHT ) - FISH_HEIGHT/2 );
-
-		// The polygon of fish heading left has the same coordinates multiplied by -1
-		FISH_POLYGON_LEFT = new Polygon();
-		for ( int i = 0; i < FISH_POLYGON_RIGHT.npoints; i++ )
-			FISH_POLYGON_LEFT.addPoint( -FISH_POLYGON_RIGHT.xpoints[ i ], -FISH_POLYGON_RIGHT.ypoints[ i ] );
-	}
-	
-	/**
-	 * Enum constants for the control keys.
-	 * @author Andras Belicza
-	 */
-	enum ControlKeys {
-		/** Moving to the left.  */
-		LEFT,
-		/** Moving to the right. */
-		RIGHT,
-		/** Moving to shallow.   */
-		UP,
-		/** Moving to deeper.    */
-		DOWN
-	}
-	
-	
-	
-	/** States of the control keys.                             
+	/** States of the control keys as offered to the key event queue (used only by the event dispatch thread).
 	 *     false - released
 	 *     true  - pressed                */
-	private boolean[]       controlKeyStates = new boolean[ ControlKeys.values().length ];
-	/** Reference to the game model.      */
-	private final GameModel gameModel;
+	private final boolean[] controlKeyStates = new boolean[ ControlKeys.values().length ];
+	/** Queue of the key events of the control keys, consumed by the game control.                     */
+	private final KeyEventQueue keyEventQueue = new KeyEventQueue( KEY_EVENT_QUEUE_CAPACITY );
+	/** Snapshots of the game to be painted. */
+	private final TripleBuffer< RenderSnapshot > snapshots;
+	/** Pre-rendered image of the air; created when first needed or when the size of the scene changes. */
+	private BufferedImage   airImage;
+	/** Polygon of the water, reused in every frame.                                                    */
+	private Polygon         waterPolygon     = new Polygon();
+	/** Sprites of the fishes, the net and the boat.                                                    */
+	private final SpriteAtlas spriteAtlas    = new SpriteAtlas( FISH_COLOR, NET_COLOR, BOAT_COLOR );
 	/** Reference to the fishing control. */
 	private final Fishing   fishing; 
+	/** Tells whether the performance info is displayed.                                                */
+	private volatile boolean performanceInfoShown = Boolean.getBoolean( "fishing.showPerformance" );
+	/** Line of the performance info being drawn, reused in every frame (used only by the thread painting the scene). */
+	private final StringBuilder performanceInfoLine = new StringBuilder( 64 );
+	/** Characters of the line of the performance info, reused in every frame.                          */
+	private char[]          performanceInfoChars = new char[ 64 ];
+	
+	// The attributes of the dirty region are used only by the game control thread.
+	/** The dirty region to be repainted.                                                    */
+	private final Rectangle dirtyRegion        = new Rectangle();
+	/** Bounds of the moving parts of the last published snapshot.                          */
+	private final Rectangle lastSnapshotBounds = new Rectangle();
+	/** Tells whether the whole scene has to be repainted.                                  */
+	private boolean         fullRepaintNeeded  = true;
+	/** Number of caught fishes in the last published snapshot.                             */
+	private int             lastFishesCaught;
+	/** Number of missed fishes in the last published snapshot.                             */
+	private int             lastFishesMissed;
+	/** x coordinate of the camera in the last published snapshot.                          */
+	private int             lastCameraX;
+	/** y coordinate of the camera in the last published snapshot.                          */
+	private int             lastCameraY;
+	
+	// The attributes of the input latency are used only by the thread painting the scene.
+	/** Sequence number of the last input whose effect has been painted.                    */
+	private long            paintedInputSequence;
+	/** Tells whether a painted input has not been presented yet.                           */
+	private boolean         inputUnpresented;
+	/** Time of the painted input which has not been presented yet (System.nanoTime).       */
+	private long            unpresentedInputNanos;
 
 	/**
 	 * Creates a new GameScene.
-	 * @param gameModel reference to the game model
+	 * @param snapshots snapshots of the game to be painted, published by the fishing control
 	 * @param fishing   reference to the fishing control
 	 */
-	public GameScene( final GameModel gameModel, final Fishing fishing ) {
-		this.gameModel = gameModel;
+	public GameScene( final TripleBuffer< RenderSnapshot > snapshots, final Fishing fishing ) {
+		this.snapshots = snapshots;
 		this.fishing   = fishing;
 		
 		setPreferredSize( new Dimension( SCENE_WIDTH, SCENE_HEIGHT ) );
@@ -131,11 +126,79 @@ class GameScene extends JComponent implements KeyListener {
 	}
 
 	/**
-	 * Returns the array of states of control keys.<br>
-	 * @return the array of states of control keys
+	 * Returns the queue of the key events of the control keys.<br>
+	 * Only the changes of the key states are queued (not the auto-repeated presses). Must be consumed by the game control thread.
+	 * @return the queue of the key events of the control keys
+	 */
+	public KeyEventQueue getKeyEventQueue() {
+		return keyEventQueue;
+	}
+	
+	/**
+	 * Adds the region of a snapshot to the dirty region.<br>
+	 * Must be called by the game control thread for every snapshot before publishing it.
+	 * @param snapshot the snapshot to be published
+	 */
+	public void addSnapshotToDirtyRegion( final RenderSnapshot snapshot ) {
+		// If the camera moves, everything moves on the scene
+		if ( snapshot.isCameraMoving() || snapshot.cameraX != lastCameraX || snapshot.cameraY != lastCameraY )
+			fullRepaintNeeded = true;
+		lastCameraX = snapshot.cameraX;
+		lastCameraY = snapshot.cameraY;
+		
+		dirtyRegion.add( snapshot.bounds );
+		lastSnapshotBounds.setBounds( snapshot.bounds );
+		
+		if ( snapshot.gameModel.fishesCaught != lastFishesCaught || snapshot.gameModel.fishesMissed != lastFishesMissed ) {
+			// The texts have to be repainted. They are in the top of the scene, in the first text line.
+			final Font font = getFont();
+			if ( font == null )
+				fullRepaintNeeded = true;
+			else {
+				final FontMetrics fontMetrics = getFontMetrics( font );
+				// The corners of the region are added, so no rectangle is allocated
+				dirtyRegion.add( 0, 0 );
+				dirtyRegion.add( SCENE_WIDTH, fontMetrics.getHeight() + fontMetrics.getDescent() + 1 );
+			}
+			lastFishesCaught = snapshot.gameModel.fishesCaught;
+			lastFishesMissed = snapshot.gameModel.fishesMissed;
+		}
+	}
+	
+	/**
+	 * Marks the whole scene to be repainted by the next repaintDirtyRegion().<br>
+	 * Must be called by the game control thread.
+	 */
+	public void invalidateDirtyRegion() {
+		fullRepaintNeeded = true;
+	}
+	
+	/**
+	 * Repaints the dirty region: the regions of the snapshots published since the last call,
+	 * and the region of the last snapshot (which is painted interpolated in every frame).
+	 * If the dirty region is too large, the whole scene is repainted.<br>
+	 * Must be called by the game control thread.
 	 */
-	public boolean[] getControlKeyStates() {
-		return controlKeyStates;
+	public void repaintDirtyRegion() {
+		if ( performanceInfoShown ) {
+			// The performance info changes in every frame. It is below the first text line.
+			final Font font = getFont();
+			if ( font == null )
+				fullRepaintNeeded = true;
+			else {
+				final FontMetrics fontMetrics = getFontMetrics( font );
+				dirtyRegion.add( 0, 0 );
+				dirtyRegion.add( SCENE_WIDTH, ( PERFORMANCE_INFO_LINES + 1 ) * fontMetrics.getHeight() + fontMetrics.getDescent() + 1 );
+			}
+		}
+		
+		if ( fullRepaintNeeded || (double) dirtyRegion.width * dirtyRegion.height > MAX_DIRTY_AREA_RATIO * SCENE_WIDTH * SCENE_HEIGHT )
+			repaint();
+		else
+			repaint( dirtyRegion.x, dirtyRegion.y, dirtyRegion.width, dirtyRegion.height );
+		
+		fullRepaintNeeded = false;
+		dirtyRegion.setBounds( lastSnapshotBounds );
 	}
 	
 	/**
@@ -143,120 +206,192 @@ class GameScene extends JComponent implements KeyListener {
 	 * @param graphics the graphics context in which to paint
 	 */
 	public void paintComponent( final Graphics graphics ) {
-		drawWaterAndAir( graphics );
-		drawDecorations( graphics );
-		drawFishes     ( graphics );
-		drawBoat       ( graphics );
-		drawTexts      ( graphics );
+		paintScene( graphics );
+		recordFramePresented();  // Swing copies the painted region to the screen right after painting
+	}
+	
+	/**
+	 * Paints the game scene.<br>
+	 * Used both by passive (Swing) and active rendering.
+	 * @param graphics the graphics context in which to paint
+	 */
+	public void paintScene( final Graphics graphics ) {
+		final long   startNanos = System.nanoTime();
+		final Object paintEvent = GameEvents.beginPaint();  // null if the event is disabled
+		
+		// We only paint the last published snapshot, the game model might be modified meanwhile.
+		// All the moving parts are painted interpolated between the last two iterations.
+		final RenderSnapshot snapshot  = snapshots.getFrontBuffer();
+		final GameModel      gameModel = snapshot.gameModel;
+		final double         alpha     = fishing.getInterpolationAlpha( snapshot.iterationNanos );
+		final int            cameraX   = snapshot.getCameraX( alpha );
+		final int            cameraY   = snapshot.getCameraY( alpha );
+		
+		// The world is drawn in its own coordinates, translated by the camera
+		graphics.translate( -cameraX, -cameraY );
+		drawWaterAndAir( graphics, gameModel, alpha, cameraX, cameraY );
+		drawDecorations( graphics, gameModel, alpha, cameraX );
+		drawFishes     ( graphics, gameModel, alpha, cameraX );
+		drawBoat       ( graphics, gameModel, alpha );
+		graphics.translate( cameraX, cameraY );
+		drawTexts      ( graphics, gameModel );
+		
+		// The effect of an input is visible from the first frame interpolated past the previous iteration of its snapshot
+		if ( snapshot.inputSequence != paintedInputSequence && alpha > 0.0 ) {
+			paintedInputSequence  = snapshot.inputSequence;
+			inputUnpresented      = true;
+			unpresentedInputNanos = snapshot.inputNanos;
+		}
+		
+		fishing.getPerformanceMetrics().recordPaint( System.nanoTime() - startNanos );
+		if ( paintEvent != null ) {
+			final Rectangle clipBounds = graphics.getClipBounds();
+			GameEvents.commitPaint( paintEvent, clipBounds == null ? SCENE_WIDTH  : clipBounds.width,
+			                                    clipBounds == null ? SCENE_HEIGHT : clipBounds.height );
+		}
 	}
 
 	/**
-	 * Draws the water and the air part of the scene.
-	 * @param graphics the graphics context in which to paint 
+	 * Records that the last painted frame has been presented (put on the screen).<br>
+	 * If the frame is the first one showing the effect of an input, the latency from the key event to now is recorded.
+	 * Must be called by the thread painting the scene.
+	 */
+	public void recordFramePresented() {
+		if ( inputUnpresented ) {
+			fishing.getPerformanceMetrics().recordInputLatency( System.nanoTime() - unpresentedInputNanos );
+			inputUnpresented = false;
+		}
+	}
+	
+	/**
+	 * Draws the water and the air part of the viewport.<br>
+	 * The air is a pre-rendered image (it does not scroll with the camera), the water is a polygon whose top is
+	 * the surface in the columns of the viewport.
+	 * @param graphics  the graphics context in which to paint (translated by the camera)
+	 * @param gameModel the game model to be painted
+	 * @param alpha     interpolation factor between the last two iterations
+	 * @param cameraX   x coordinate of the camera
+	 * @param cameraY   y coordinate of the camera
 	 */
-	private void drawWaterAndAir( final Graphics graphics ) {
+	private void drawWaterAndAir( final Graphics graphics, final GameModel gameModel, final double alpha, final int cameraX, final int cameraY ) {
 		final int MIN_WATER_LEVEL = WaterSurface.SEA_LEVEL + WaterSurface.MAX_SURFACE_AMPLITUDE;
+		if ( airImage == null || airImage.getWidth() != SCENE_WIDTH || airImage.getHeight() != MIN_WATER_LEVEL + 1 )
+			airImage = createAirImage( SCENE_WIDTH, MIN_WATER_LEVEL + 1 );
+		graphics.drawImage( airImage, cameraX, 0, null );
+		
+		if ( waterPolygon.xpoints.length < SCENE_WIDTH + 3 )
+			waterPolygon = new Polygon( new int[ SCENE_WIDTH + 3 ], new int[ SCENE_WIDTH + 3 ], SCENE_WIDTH + 3 );
+		final int[] xpoints = waterPolygon.xpoints;
+		final int[] ypoints = waterPolygon.ypoints;
 		for ( int i = 0; i < SCENE_WIDTH; i++ ) {
-			final int waterLevel = gameModel.waterSurface.getWaterLevelAt( i );
-			
-			// Nice gradient fill for the AIR from left to right
-			// Note: using of java.awt.GradientPaint for this resulted in much higher cpu loading!!!
-			final int MIN_RED     = LEFT_AIR_COLOR .getRed  ();
-			final int MIN_GREEN   = LEFT_AIR_COLOR .getGreen();
-			final int MIN_BLUE    = LEFT_AIR_COLOR .getBlue ();
-			final int DELTA_RED   = RIGHT_AIR_COLOR.getRed  () - MIN_RED  ;
-			final int DELTA_GREEN = RIGHT_AIR_COLOR.getGreen() - MIN_GREEN;
-			final int DELTA_BLUE  = RIGHT_AIR_COLOR.getBlue () - MIN_BLUE ;
-			
-			graphics.setColor( new Color( MIN_RED + DELTA_RED*i/SCENE_WIDTH, MIN_GREEN + DELTA_GREEN*i/SCENE_WIDTH, MIN_BLUE + DELTA_BLUE*i/SCENE_WIDTH ) );
-			graphics.drawLine( i, 0, i, waterLevel );
-			graphics.setColor( WATER_COLOR );
-			graphics.drawLine( i, waterLevel, i, MIN_WATER_LEVEL );
+			xpoints[ i ] = cameraX + i;
+			ypoints[ i ] = gameModel.waterSurface.getWaterLevelAt( cameraX + i, alpha );
 		}
-		graphics.fillRect( 0, MIN_WATER_LEVEL+1, SCENE_WIDTH, SCENE_HEIGHT - MIN_WATER_LEVEL );  // The paint color is WATER_COLOR now
+		// The right and the bottom edge of the water
+		final int RIGHT  = cameraX + SCENE_WIDTH;
+		final int BOTTOM = cameraY + SCENE_HEIGHT;
+		xpoints[ SCENE_WIDTH     ] = RIGHT;    ypoints[ SCENE_WIDTH     ] = ypoints[ SCENE_WIDTH - 1 ];
+		xpoints[ SCENE_WIDTH + 1 ] = RIGHT;    ypoints[ SCENE_WIDTH + 1 ] = BOTTOM;
+		xpoints[ SCENE_WIDTH + 2 ] = cameraX;  ypoints[ SCENE_WIDTH + 2 ] = BOTTOM;
+		waterPolygon.npoints = SCENE_WIDTH + 3;
+		waterPolygon.invalidate();             // The points were changed directly
+		
+		graphics.setColor( WATER_COLOR );
+		graphics.fillPolygon( waterPolygon );
 	}
 	
 	/**
-	 * Draws the decorations of the game (bubbles only for now).
-	 * @param graphics the graphics context in which to paint 
+	 * Creates the image of the air.<br>
+	 * Nice gradient fill for the air from left to right.
+	 * Note: using of java.awt.GradientPaint for this resulted in much higher cpu loading!!!
+	 * @param width  width of the image
+	 * @param height height of the image
+	 * @return the image of the air
+	 */
+	private BufferedImage createAirImage( final int width, final int height ) {
+		final GraphicsConfiguration graphicsConfiguration = getGraphicsConfiguration();
+		final BufferedImage         image                 = graphicsConfiguration == null ? new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB )
+		                                                                                  : graphicsConfiguration.createCompatibleImage( width, height );
+		
+		final int MIN_RED     = LEFT_AIR_COLOR .getRed  ();
+		final int MIN_GREEN   = LEFT_AIR_COLOR .getGreen();
+		final int MIN_BLUE    = LEFT_AIR_COLOR .getBlue ();
+		final int DELTA_RED   = RIGHT_AIR_COLOR.getRed  () - MIN_RED  ;
+		final int DELTA_GREEN = RIGHT_AIR_COLOR.getGreen() - MIN_GREEN;
+		final int DELTA_BLUE  = RIGHT_AIR_COLOR.getBlue () - MIN_BLUE ;
+		
+		final Graphics graphics = image.getGraphics();
+		for ( int i = 0; i < width; i++ ) {
+			graphics.setColor( new Color( MIN_RED + DELTA_RED*i/width, MIN_GREEN + DELTA_GREEN*i/width, MIN_BLUE + DELTA_BLUE*i/width ) );
+			graphics.drawLine( i, 0, i, height - 1 );
+		}
+		graphics.dispose();
+		
+		return image;
+	}
+	
+	/**
+	 * Draws the decorations of the game (bubbles only for now) which are in the viewport.
+	 * @param graphics  the graphics context in which to paint (translated by the camera)
+	 * @param gameModel the game model to be painted
+	 * @param alpha     interpolation factor between the last two iterations
+	 * @param cameraX   x coordinate of the camera
 	 */
-	private void drawDecorations( final Graphics graphics ) {
+	private void drawDecorations( final Graphics graphics, final GameModel gameModel, final double alpha, final int cameraX ) {
 		graphics.setColor( BUBBLE_COLOR );
 
-		// We cannot use enhanced for here, because painting runs in a different thread, and game controller can modify this during a repainting
-		// Enhanced for uses iterator, ConcurrentModificationException would (may) be thrown
-		for ( int i = 0; i < gameModel.bubbles.size(); i++ ) { 
-			final Bubble bubble = gameModel.bubbles.get( i );
-			graphics.drawOval( bubble.getX() - BUBBLE_SIZE/2, bubble.getY() - BUBBLE_SIZE/2, BUBBLE_SIZE, BUBBLE_SIZE );
+		final EntityStore bubbles = gameModel.bubbles;
+		for ( int i = 0; i < bubbles.count; i++ ) {
+			final int bubbleX = Bubble.getInterpolatedX( bubbles, i, alpha, gameModel.timeStep );
+			if ( bubbleX + BUBBLE_SIZE/2 >= cameraX && bubbleX - BUBBLE_SIZE/2 < cameraX + SCENE_WIDTH )
+				graphics.drawOval( bubbleX - BUBBLE_SIZE/2, bubbles.getInterpolatedY( i, alpha ) - BUBBLE_SIZE/2, BUBBLE_SIZE, BUBBLE_SIZE );
 		}
 	}
 	
 	/**
-	 * Draws the fishes.
-	 * @param graphics the graphics context in which to paint 
+	 * Draws the fishes which are in the viewport.
+	 * @param graphics  the graphics context in which to paint (translated by the camera)
+	 * @param gameModel the game model to be painted
+	 * @param alpha     interpolation factor between the last two iterations
+	 * @param cameraX   x coordinate of the camera
 	 */
-	private void drawFishes( final Graphics graphics ) {
-		graphics.setColor( FISH_COLOR );
-		// We cannot use enhanced for here, because painting runs in a different thread, and game controller can modify this during a repainting
-		// Enhanced for uses iterator, ConcurrentModificationException would (may) be thrown
-		for ( int i = 0; i < gameModel.fishes.size(); i++ ) { 
-			final Fish fish = gameModel.fishes.get( i );
-			final Polygon fishPolygon = fish.headingRight() ? FISH_POLYGON_RIGHT : FISH_POLYGON_LEFT;
-
-			fishPolygon.translate(  fish.getX(),  fish.getY() );
-			graphics.fillPolygon (  fishPolygon );
-			fishPolygon.translate( -fish.getX(), -fish.getY() );
+	private void drawFishes( final Graphics graphics, final GameModel gameModel, final double alpha, final int cameraX ) {
+		final EntityStore fishes = gameModel.fishes;
+		for ( int i = 0; i < fishes.count; i++ ) {
+			final int fishX = fishes.getInterpolatedX( i, alpha );
+			if ( fishX + FISH_ANCHOR >= cameraX && fishX - FISH_ANCHOR < cameraX + SCENE_WIDTH )
+				spriteAtlas.drawFish( graphics, fishX, fishes.getInterpolatedY( i, alpha ), Fish.headingRight( fishes, i ) );
 		}
 	}
 	
 	/**
 	 * Draws the boat with the net which is part of the boat.
-	 * @param graphics the graphics context in which to paint 
+	 * @param graphics  the graphics context in which to paint 
+	 * @param gameModel the game model to be painted
+	 * @param alpha     interpolation factor between the last two iterations
 	 */
-	private void drawBoat( final Graphics graphics ) {
-		final Boat boat = gameModel.boat;
+	private void drawBoat( final Graphics graphics, final GameModel gameModel, final double alpha ) {
+		final Boat boat  = gameModel.boat;
+		final int  boatX = boat.getInterpolatedX( alpha );
+		final int  boatY = boat.getInterpolatedBoatY( alpha );
 
-		// First we draw the net
-		// The net consists of the rope which connects it to the boat,
-		// and a circle with 3 horizontal and 3 vertical lines 
-		final int CHORD_LENGTH = (int) ( NET_SIZE * 0.433 );   // This is the length of the half of the chord which is parallel with the diameter of the circle, and is at he half of the radius. 0.433=sqrt(3)/2/2
-		
-		final int netX = boat.getX();                          // center x coordinate of the net
-		final int netY = boat.getBoatY() + boat.getY();        // center y coordinate of the net
+		// First we draw the net and the rope which connects it to the boat...
+		final int netX = boatX;                                  // center x coordinate of the net
+		final int netY = boatY + boat.getInterpolatedY( alpha ); // center y coordinate of the net
 		graphics.setColor( NET_COLOR );
-		// The outline of the net
-		graphics.drawOval( netX - NET_SIZE/2, netY - NET_SIZE/2, NET_SIZE, NET_SIZE );
-		// The rope of the net
-		graphics.drawLine( boat.getX()      , boat.getBoatY(), netX, netY - NET_SIZE );
-		graphics.drawLine( netX - NET_SIZE/2, netY           , netX, netY - NET_SIZE );
-		graphics.drawLine( netX + NET_SIZE/2, netY           , netX, netY - NET_SIZE );
-		// The vertical lines of net
-		graphics.drawLine( netX - NET_SIZE/4, netY - CHORD_LENGTH, netX - NET_SIZE/4, netY + CHORD_LENGTH );
-		graphics.drawLine( netX             , netY - NET_SIZE/2  , netX             , netY + NET_SIZE/2   );
-		graphics.drawLine( netX + NET_SIZE/4, netY - CHORD_LENGTH, netX + NET_SIZE/4, netY + CHORD_LENGTH );
-		// The horizontal lines of net
-		graphics.drawLine( netX - CHORD_LENGTH, netY - NET_SIZE/4, netX + CHORD_LENGTH     , netY - NET_SIZE/4 );
-		graphics.drawLine( netX - NET_SIZE/2  , netY             , boat.getX() + NET_SIZE/2, netY              );
-		graphics.drawLine( netX - CHORD_LENGTH, netY + NET_SIZE/4, netX + CHORD_LENGTH     , netY + NET_SIZE/4 );
-
+		graphics.drawLine( boatX, boatY, netX, netY - NET_SIZE );
+		spriteAtlas.drawNet( graphics, netX, netY );
 		
 		// ...and the boat
-		final Graphics2D      graphics2D            = (Graphics2D) graphics;
-		final AffineTransform storedAffineTransform = graphics2D.getTransform(); // We store the transform, because we draw the boat rotated.
-		
-		graphics2D.rotate( gameModel.waterSurface.getSurfaceAngleAt( boat.getX() ) * SURFACE_FOLLOWING_DEGREE, boat.getX(), boat.getBoatY() );
-		graphics2D.translate( boat.getX(), boat.getBoatY() - (int) ( BOAT_HEIGHT * (0.5-SINKING_DEGREE) ) );
-		graphics2D.setColor( BOAT_COLOR );
-		graphics2D.fillPolygon( BOAT_POLYGON );
-		graphics2D.setTransform( storedAffineTransform );
-
+		spriteAtlas.drawBoat( graphics, boatX, boatY, gameModel.waterSurface.getSurfaceAngleAt( boatX ) * SURFACE_FOLLOWING_DEGREE );
 	}
 	
 	/**
 	 * Draws the texts must be displayed on the scene.
-	 * @param graphics the graphics context in which to paint 
+	 * @param graphics  the graphics context in which to paint 
+	 * @param gameModel the game model to be painted
 	 */
-	private void drawTexts( final Graphics graphics ) {
+	private void drawTexts( final Graphics graphics, final GameModel gameModel ) {
 		graphics.setColor( TEXT_COLOR );
 		
 		final FontMetrics fontMetrics = graphics.getFontMetrics();
@@ -265,14 +400,101 @@ class GameScene extends JComponent implements KeyListener {
 		final String fishesMissedText = "Fishes missed: " + gameModel.fishesMissed;
 		graphics.drawString( fishesMissedText, SCENE_WIDTH - 6 - fontMetrics.stringWidth( fishesMissedText ), fontMetrics.getHeight() );
 		
+		if ( performanceInfoShown )
+			drawPerformanceInfo( graphics, fontMetrics.getHeight() );
+		
 		if ( fishing.isGamePaused() ) {
 			// Putting 2 texts centering to the scene
-			final String GAME_TEXT = fishing.isGameOver() ? GAME_OVER_TEXT : GAME_PAUSED_TEXT; 
+			final String GAME_TEXT = gameModel.isGameOver() ? GAME_OVER_TEXT : GAME_PAUSED_TEXT; 
 			graphics.drawString( GAME_TEXT, SCENE_WIDTH/2 - fontMetrics.stringWidth( GAME_TEXT )/2, SCENE_HEIGHT/2 );
 			graphics.drawString( KEY_TO_CONTINUE_TEXT, SCENE_WIDTH/2 - fontMetrics.stringWidth( KEY_TO_CONTINUE_TEXT )/2, SCENE_HEIGHT/2 + fontMetrics.getHeight() );
 		}
 	}
 	
+	/**
+	 * Draws the performance info below the first text line.<br>
+	 * The lines are built in a reused builder and drawn from a reused char array, so drawing the info does not
+	 * allocate memory (the info would distort the allocation rate it displays).
+	 * @param graphics   the graphics context in which to paint 
+	 * @param lineHeight height of a text line
+	 */
+	private void drawPerformanceInfo( final Graphics graphics, final int lineHeight ) {
+		final PerformanceMetrics metrics = fishing.getPerformanceMetrics();
+		final StringBuilder      line    = performanceInfoLine;
+		int y = lineHeight;
+		
+		line.setLength( 0 );
+		appendFixed( line.append( "Ticks/s: " ), metrics.getTicksPerSec(), 1 ).append( " (dropped: " ).append( metrics.getDroppedTickCount() ).append( ")   FPS: " );
+		appendFixed( line, metrics.getFramesPerSec(), 1 );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+		
+		line.setLength( 0 );
+		appendFixed( line.append( "Tick p50/p99/max: " ), metrics.getTickLatencyMedianMicros(), 0 ).append( " / " );
+		appendFixed( line, metrics.getTickLatency99Micros(), 0 ).append( " / " );
+		appendFixed( line, metrics.getTickLatencyMaxMicros(), 0 ).append( " \u00b5s" );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+		
+		line.setLength( 0 );
+		appendFixed( line.append( "Paint p50/p99/max: " ), metrics.getPaintLatencyMedianMicros(), 0 ).append( " / " );
+		appendFixed( line, metrics.getPaintLatency99Micros(), 0 ).append( " / " );
+		appendFixed( line, metrics.getPaintLatencyMaxMicros(), 0 ).append( " \u00b5s" );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+		
+		line.setLength( 0 );
+		appendFixed( line.append( "Input to frame p50/p99/max: " ), metrics.getInputLatencyMedianMicros() / 1000.0, 1 ).append( " / " );
+		appendFixed( line, metrics.getInputLatency99Micros() / 1000.0, 1 ).append( " / " );
+		appendFixed( line, metrics.getInputLatencyMaxMicros() / 1000.0, 1 ).append( " ms" );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+		
+		line.setLength( 0 );
+		line.append( "Fishes: " ).append( metrics.getFishCount() ).append( "   Bubbles: " ).append( metrics.getBubbleCount() );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+		
+		line.setLength( 0 );
+		final double allocationRate = metrics.getAllocationRate();
+		if ( allocationRate < 0.0 )
+			line.append( "Allocation: not measured" );
+		else
+			appendFixed( line.append( "Allocation: " ), allocationRate / 1024.0, 1 ).append( " KB/s" );
+		drawPerformanceInfoLine( graphics, y += lineHeight );
+	}
+	
+	/**
+	 * Draws the line of the performance info.
+	 * @param graphics the graphics context in which to paint 
+	 * @param y        y coordinate of the baseline of the line
+	 */
+	private void drawPerformanceInfoLine( final Graphics graphics, final int y ) {
+		final int length = performanceInfoLine.length();
+		if ( performanceInfoChars.length < length )
+			performanceInfoChars = new char[ length ];
+		performanceInfoLine.getChars( 0, length, performanceInfoChars, 0 );
+		graphics.drawChars( performanceInfoChars, 0, length, 5, y );
+	}
+	
+	/**
+	 * Appends a value with a fixed number of decimals (rounded) without allocating memory.
+	 * @param builder  builder to append to
+	 * @param value    value to be appended
+	 * @param decimals number of decimals
+	 * @return the builder
+	 */
+	private static StringBuilder appendFixed( final StringBuilder builder, final double value, final int decimals ) {
+		long scale = 1;
+		for ( int i = 0; i < decimals; i++ )
+			scale *= 10;
+		final long scaled = Math.round( Math.abs( value ) * scale );
+		if ( value < 0.0 && scaled != 0 )
+			builder.append( '-' );
+		builder.append( scaled / scale );
+		if ( decimals > 0 ) {
+			builder.append( '.' );
+			for ( long digit = scale / 10; digit > 0; digit /= 10 )
+				builder.append( (char) ( '0' + scaled / digit % 10 ) );
+		}
+		return builder;
+	}
+	
 	
 	/**
 	 * Handles the key typed events.
@@ -287,12 +509,13 @@ class GameScene extends JComponent implements KeyListener {
 	 */
 	public void keyPressed( final KeyEvent keyEvent ) {
 		switch ( keyEvent.getKeyCode() ) {
-			case KeyEvent.VK_LEFT  : controlKeyStates[ ControlKeys.LEFT .ordinal() ] = true;  break;
-			case KeyEvent.VK_DOWN  : controlKeyStates[ ControlKeys.DOWN .ordinal() ] = true;  break;
-			case KeyEvent.VK_RIGHT : controlKeyStates[ ControlKeys.RIGHT.ordinal() ] = true;  break;
-			case KeyEvent.VK_UP    : controlKeyStates[ ControlKeys.UP   .ordinal() ] = true;  break;
+			case KeyEvent.VK_LEFT  : setControlKeyState( ControlKeys.LEFT , true );           break;
+			case KeyEvent.VK_DOWN  : setControlKeyState( ControlKeys.DOWN , true );           break;
+			case KeyEvent.VK_RIGHT : setControlKeyState( ControlKeys.RIGHT, true );           break;
+			case KeyEvent.VK_UP    : setControlKeyState( ControlKeys.UP   , true );           break;
 			case KeyEvent.VK_SPACE : fishing.invertGamePauseState();                          break;
 			case KeyEvent.VK_F1    : fishing.showHelp();                                      break;
+			case KeyEvent.VK_F2    : performanceInfoShown = !performanceInfoShown; repaint(); break;
 		}
 	}
 
@@ -302,10 +525,25 @@ class GameScene extends JComponent implements KeyListener {
 	 */
 	public void keyReleased( final KeyEvent keyEvent ) {
 		switch ( keyEvent.getKeyCode() ) {
-			case KeyEvent.VK_LEFT  : controlKeyStates[ ControlKeys.LEFT .ordinal() ] = false; break;
-			case KeyEvent.VK_DOWN  : controlKeyStates[ ControlKeys.DOWN .ordinal() ] = false; break;
-			case KeyEvent.VK_RIGHT : controlKeyStates[ ControlKeys.RIGHT.ordinal() ] = false; break;
-			case KeyEvent.VK_UP    : controlKeyStates[ ControlKeys.UP   .ordinal() ] = false; break;
+			case KeyEvent.VK_LEFT  : setControlKeyState( ControlKeys.LEFT , false ); break;
+			case KeyEvent.VK_DOWN  : setControlKeyState( ControlKeys.DOWN , false ); break;
+			case KeyEvent.VK_RIGHT : setControlKeyState( ControlKeys.RIGHT, false ); break;
+			case KeyEvent.VK_UP    : setControlKeyState( ControlKeys.UP   , false ); break;
+		}
+	}
+	
+	/**
+	 * Sets the state of a control key: queues a timestamped key event if the state changes.<br>
+	 * If the queue is full, the event is dropped, but the queue still updates the latest state of the key
+	 * (releases are not auto-repeated, so a dropped release would leave the key pressed otherwise).
+	 * @param controlKey the control key
+	 * @param pressed    true if the key is pressed, false if it is released
+	 */
+	private void setControlKeyState( final ControlKeys controlKey, final boolean pressed ) {
+		final int key = controlKey.ordinal();
+		if ( controlKeyStates[ key ] != pressed ) {
+			controlKeyStates[ key ] = pressed;
+			keyEventQueue.offer( key, pressed, System.nanoTime() );
 		}
 	}
 
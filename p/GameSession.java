@@ -0,0 +1,199 @@
+package p;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A game session hosted by a SessionHost.<br>
+ * A session has its own simulation, input state and pause state. The input and the pause state are injected
+ * through methods of the session (which can be called from any thread), and the host calls the session
+ * periodically to calculate the next iteration.<br>
+ * Just like in the desktop game, the session is paused when it is created and when game is over,
+ * and resuming a session whose game is over starts a new game.<br>
+ * If an iteration fails, the session is closed (its game may be inconsistent), so the other sessions are not affected.
+ * 
+ * @author Andras Belicza
+ */
+class GameSession implements Runnable {
+
+	/** The host of the session.                                                */
+	private final SessionHost   host;
+	/** Identifier of the session.                                              */
+	private final long          id;
+	/** The simulation of the game of the session.                             */
+	private final Simulation    simulation;
+	/** States of the control keys, bit i is the state of the key with ordinal i. */
+	private final AtomicInteger controlKeyBits = new AtomicInteger();
+	/** States of the control keys passed to the simulation.                   */
+	private final boolean[]     controlKeyStates = new boolean[ ControlKeys.values().length ];
+	/** Tells whether the session is paused.                                   */
+	private volatile boolean    paused        = true;
+	/** Number of iterations calculated by the session.                        */
+	private volatile long       iterations;
+	/** The future of the periodic task of the session, used to stop it.       */
+	private volatile ScheduledFuture< ? > future;
+	
+	/**
+	 * Creates a new GameSession.
+	 * @param host             the host of the session
+	 * @param id               identifier of the session
+	 * @param seed             seed of the first game of the session
+	 * @param iterationsPerSec number of iterations per second of the session
+	 */
+	GameSession( final SessionHost host, final long id, final long seed, final int iterationsPerSec ) {
+		this.host  = host;
+		this.id    = id;
+		simulation = new Simulation( new GameModel( seed, GameModel.DEFAULT_WORLD_WIDTH, GameModel.DEFAULT_WORLD_HEIGHT, WaveSpectrum.DEFAULT, iterationsPerSec ) );
+	}
+	
+	/**
+	 * Returns the identifier of the session.
+	 * @return the identifier of the session
+	 */
+	public long getId() {
+		return id;
+	}
+	
+	/**
+	 * Returns the seed of the current game of the session. The game can be re-run with the same seed and inputs.
+	 * @return the seed of the current game of the session
+	 */
+	public synchronized long getSeed() {
+		return simulation.getGameModel().seed;
+	}
+	
+	/**
+	 * Sets the state of a control key.
+	 * @param controlKey control key whose state to be set
+	 * @param pressed    tells whether the key is pressed
+	 */
+	public void setControlKey( final ControlKeys controlKey, final boolean pressed ) {
+		final int bit = 1 << controlKey.ordinal();
+		int bits;
+		do {
+			bits = controlKeyBits.get();
+		} while ( !controlKeyBits.compareAndSet( bits, pressed ? bits | bit : bits & ~bit ) );
+	}
+	
+	/**
+	 * Sets the states of all the control keys.
+	 * @param bits states of the control keys, bit i is the state of the key with ordinal i
+	 */
+	public void setControlKeyBits( final int bits ) {
+		controlKeyBits.set( bits );
+	}
+	
+	/**
+	 * Returns the states of the control keys.
+	 * @return the states of the control keys, bit i is the state of the key with ordinal i
+	 */
+	public int getControlKeyBits() {
+		return controlKeyBits.get();
+	}
+	
+	/**
+	 * Tells whether the session is paused.
+	 * @return true if the session is paused; false otherwise
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+	
+	/**
+	 * Pauses or resumes the session.
+	 * @param paused true to pause, false to resume the session
+	 */
+	public void setPaused( final boolean paused ) {
+		this.paused = paused;
+	}
+	
+	/**
+	 * Returns the number of iterations calculated by the session.
+	 * @return the number of iterations calculated by the session
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * Copies the game model of the session.<br>
+	 * The copy is consistent: it is not made during the calculation of an iteration.
+	 * @param gameModel game model to copy to
+	 */
+	public synchronized void copyGameModelTo( final GameModel gameModel ) {
+		gameModel.copyFrom( simulation.getGameModel() );
+	}
+	
+	/**
+	 * Saves the game of the session into a snapshot file (e.g. before migrating the session to another host).<br>
+	 * The snapshot is consistent: it is not made during the calculation of an iteration.
+	 * @param file the snapshot file
+	 * @throws IOException if the file cannot be written
+	 * @see GameModelSnapshot
+	 */
+	public synchronized void saveSnapshot( final File file ) throws IOException {
+		GameModelSnapshot.save( simulation, file );
+	}
+	
+	/**
+	 * Restores the game of the session from a snapshot file. The game continues exactly the same way as the saved one.
+	 * @param file the snapshot file
+	 * @throws IOException if the file cannot be read or it is not a valid snapshot
+	 * @see GameModelSnapshot
+	 */
+	public synchronized void restoreSnapshot( final File file ) throws IOException {
+		GameModelSnapshot.restore( file, simulation );
+	}
+	
+	/**
+	 * Sets the future of the periodic task of the session.
+	 * @param future the future of the periodic task of the session
+	 */
+	void setFuture( final ScheduledFuture< ? > future ) {
+		this.future = future;
+	}
+	
+	/**
+	 * Stops calling the session.
+	 */
+	void cancel() {
+		final ScheduledFuture< ? > future = this.future;
+		if ( future != null )
+			future.cancel( false );
+	}
+	
+	/**
+	 * Calculates the next iteration of the game of the session if it is not paused.<br>
+	 * Called periodically by the host. An exception must not escape: it would silently stop the periodic task,
+	 * so a failed session is logged and closed instead.
+	 */
+	public void run() {
+		if ( paused )
+			return;
+		
+		final int bits = controlKeyBits.get();
+		for ( int i = 0; i < controlKeyStates.length; i++ )
+			controlKeyStates[ i ] = ( bits & 1 << i ) != 0;
+		
+		try {
+			synchronized ( this ) {
+				if ( simulation.isGameOver() )  // If game ended (game over), we start a new game
+					simulation.reset();
+				simulation.step( controlKeyStates );
+				if ( simulation.isGameOver() )
+					paused = true;
+			}
+		}
+		catch ( final RuntimeException re ) {
+			System.err.println( "Iteration of session " + id + " failed, closing the session." );
+			re.printStackTrace();
+			paused = true;
+			host.closeSession( id );
+			return;
+		}
+		iterations++;
+	}
+	
+}
@@ -0,0 +1,189 @@
+package p;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the inputs of a game into a compact binary file, which can be replayed by the InputReplayer.<br>
+ * <br>
+ * Format of the file (numbers are big endian):
+ * <ul>
+ * <li>header: MAGIC (int), VERSION (short), seed of the first game (long),
+ *     worldWidth, worldHeight (ints; since version 2, version 1 recordings have the default world size),
+ *     number of the wave components of the water surface (int; since version 3, older recordings have a single component,
+ *     the spectrum is re-created by WaveSpectrum.create(int)),
+ *     number of the capture sub-steps of an iteration (int; since version 4, older recordings have a single sub-step),
+ *     number of iterations per second (int; since version 5, older recordings have Simulation.ITERATIONS_PER_SEC),
+ *     size of the sine table of the water surface (int; since version 6, older recordings have 0: no sine table)
+ * <li>records:
+ *     <ul>
+ *     <li>0x00..0x0f: a run of iterations with the same keys: bit i is the state of the key with ordinal i,
+ *         followed by the length of the run (unsigned varint: 7 bits per byte, the highest bit means more bytes follow)
+ *     <li>PAUSED, RESUMED: the game was paused or resumed
+ *     <li>RESET: a new game was started
+ *     </ul>
+ * <li>END followed by the final fishesCaught, fishesMissed and iterationCounter (ints), used to verify the replay
+ * </ul>
+ * The methods are synchronized, they can be called from any thread. Recording errors do not stop the game:
+ * the error is printed and recording stops.
+ * 
+ * @author Andras Belicza
+ */
+class InputRecorder {
+
+	/** Magic number at the beginning of the file ("FSHR"). */
+	public static final int   MAGIC   = 0x46534852;
+	/** Version of the file format.                          */
+	public static final short VERSION = 6;
+	/** Record: the game was paused.                         */
+	public static final int   PAUSED  = 0x80;
+	/** Record: the game was resumed.                        */
+	public static final int   RESUMED = 0x81;
+	/** Record: a new game was started.                      */
+	public static final int   RESET   = 0x82;
+	/** Record: end of the records.                          */
+	public static final int   END     = 0xff;
+	
+	/** Output stream of the file; null if recording stopped.      */
+	private DataOutputStream output;
+	/** Keys of the current run of iterations; -1 if there is none. */
+	private int              runKeys = -1;
+	/** Length of the current run of iterations.                   */
+	private int              runLength;
+	
+	/**
+	 * Creates a new InputRecorder, and writes the header of the file.
+	 * @param file             file to record into
+	 * @param seed             seed of the first game
+	 * @param worldWidth       width of the world of the game
+	 * @param worldHeight      height of the world of the game
+	 * @param waveComponents   number of the wave components of the water surface of the game
+	 * @param subSteps         number of the capture sub-steps of an iteration of the simulation
+	 * @param iterationsPerSec number of iterations per second of the game
+	 * @param sineTableSize    size of the sine table of the water surface of the game (0 if there is none)
+	 * @throws IOException if the file cannot be created
+	 */
+	public InputRecorder( final File file, final long seed, final int worldWidth, final int worldHeight, final int waveComponents, final int subSteps,
+	                      final int iterationsPerSec, final int sineTableSize ) throws IOException {
+		output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+		output.writeInt  ( MAGIC            );
+		output.writeShort( VERSION          );
+		output.writeLong ( seed             );
+		output.writeInt  ( worldWidth       );
+		output.writeInt  ( worldHeight      );
+		output.writeInt  ( waveComponents   );
+		output.writeInt  ( subSteps         );
+		output.writeInt  ( iterationsPerSec );
+		output.writeInt  ( sineTableSize    );
+	}
+	
+	/**
+	 * Records an iteration.
+	 * @param controlKeyStates states of the control keys used by the iteration
+	 */
+	public synchronized void recordIteration( final boolean[] controlKeyStates ) {
+		int keys = 0;
+		for ( int i = 0; i < controlKeyStates.length; i++ )
+			if ( controlKeyStates[ i ] )
+				keys |= 1 << i;
+		
+		if ( keys == runKeys )
+			runLength++;
+		else {
+			writeRun();
+			runKeys   = keys;
+			runLength = 1;
+		}
+	}
+	
+	/**
+	 * Records that the game was paused or resumed.
+	 * @param paused true if the game was paused, false if it was resumed
+	 */
+	public synchronized void recordPauseState( final boolean paused ) {
+		writeRecord( paused ? PAUSED : RESUMED );
+	}
+	
+	/**
+	 * Records that a new game was started.
+	 */
+	public synchronized void recordReset() {
+		writeRecord( RESET );
+	}
+	
+	/**
+	 * Writes the end of the records with the final state of the game, and closes the file.
+	 * Nothing is recorded after this.
+	 * @param gameModel the game model whose final state to be written
+	 */
+	public synchronized void close( final GameModel gameModel ) {
+		writeRecord( END );
+		if ( output == null )
+			return;
+		try {
+			output.writeInt( gameModel.fishesCaught     );
+			output.writeInt( gameModel.fishesMissed     );
+			output.writeInt( gameModel.iterationCounter );
+			output.close();
+		}
+		catch ( final IOException ie ) {
+			ie.printStackTrace();
+		}
+		output = null;
+	}
+	
+	/**
+	 * Writes a record (after the current run of iterations).
+	 * @param record the record to be written
+	 */
+	private void writeRecord( final int record ) {
+		writeRun();
+		if ( output == null )
+			return;
+		try {
+			output.write( record );
+		}
+		catch ( final IOException ie ) {
+			stopRecording( ie );
+		}
+	}
+	
+	/**
+	 * Writes the current run of iterations if there is one.
+	 */
+	private void writeRun() {
+		if ( runKeys < 0 || output == null )
+			return;
+		try {
+			output.write( runKeys );
+			int length = runLength;
+			while ( length > 0x7f ) {
+				output.write( length & 0x7f | 0x80 );
+				length >>>= 7;
+			}
+			output.write( length );
+		}
+		catch ( final IOException ie ) {
+			stopRecording( ie );
+		}
+		runKeys = -1;
+	}
+	
+	/**
+	 * Stops recording because of an error.
+	 * @param ie the error
+	 */
+	private void stopRecording( final IOException ie ) {
+		ie.printStackTrace();
+		try {
+			output.close();
+		}
+		catch ( final IOException ie2 ) {
+		}
+		output = null;
+	}
+	
+}
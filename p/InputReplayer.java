@@ -0,0 +1,107 @@
+package p;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays a file recorded by the InputRecorder without any display, as fast as the CPU allows,
+ * and verifies that the final state of the game equals to the recorded one.
+ * The game is replayed with the world size, the wave spectrum and the capture sub-steps of the recording.<br>
+ * <br>
+ * Usage:<br>
+ *   java -Djava.awt.headless=true -cp . p.InputReplayer recording-file
+ * 
+ * @author Andras Belicza
+ */
+class InputReplayer {
+
+	/**
+	 * Replays a recording file and prints the results.
+	 * Exits with status 1 if the final state of the replayed game does not equal to the recorded one.
+	 * @param arguments the recording file must be specified as the first argument
+	 * @throws IOException if the file cannot be read or it is not a valid recording
+	 */
+	public static void main( final String[] arguments ) throws IOException {
+		final DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( new File( arguments[ 0 ] ) ) ) );
+		try {
+			if ( input.readInt() != InputRecorder.MAGIC )
+				throw new IOException( "Not a Fishing recording: " + arguments[ 0 ] );
+			final short version = input.readShort();
+			if ( version < 1 || version > InputRecorder.VERSION )
+				throw new IOException( "Unsupported recording version: " + version );
+			
+			final long       seed             = input.readLong();
+			final int        worldWidth       = version < 2 ? GameModel.DEFAULT_WORLD_WIDTH  : input.readInt();
+			final int        worldHeight      = version < 2 ? GameModel.DEFAULT_WORLD_HEIGHT : input.readInt();
+			final int        waveComponents   = version < 3 ? 1 : input.readInt();
+			final int        subSteps         = version < 4 ? 1 : input.readInt();
+			final int        iterationsPerSec = version < 5 ? Simulation.ITERATIONS_PER_SEC : input.readInt();
+			final int        sineTableSize    = version < 6 ? 0 : input.readInt();
+			if ( waveComponents < 1 )
+				throw new IOException( "Invalid number of wave components: " + waveComponents );
+			if ( subSteps < 1 )
+				throw new IOException( "Invalid number of sub-steps: " + subSteps );
+			if ( iterationsPerSec < 1 )
+				throw new IOException( "Invalid iteration rate: " + iterationsPerSec );
+			final Simulation simulation       = new Simulation( new GameModel( seed, worldWidth, worldHeight, WaveSpectrum.create( waveComponents ), iterationsPerSec, sineTableSize ) );
+			simulation.setSubSteps( subSteps );
+			final GameModel  gameModel        = simulation.getGameModel();
+			final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+			
+			long iterations = 0;
+			int  pauses     = 0;
+			int  games      = 1;
+			final long startNanos = System.nanoTime();
+			for ( int record; ( record = input.readUnsignedByte() ) != InputRecorder.END; ) {
+				switch ( record ) {
+					case InputRecorder.PAUSED  : pauses++; break;
+					case InputRecorder.RESUMED : break;
+					case InputRecorder.RESET   : simulation.reset(); games++; break;
+					default :
+						if ( record >= 1 << controlKeyStates.length )
+							throw new IOException( "Invalid record: " + record );
+						for ( int i = 0; i < controlKeyStates.length; i++ )
+							controlKeyStates[ i ] = ( record & 1 << i ) != 0;
+						int length = 0;
+						for ( int shift = 0, b = 0x80; ( b & 0x80 ) != 0; shift += 7 )
+							length |= ( ( b = input.readUnsignedByte() ) & 0x7f ) << shift;
+						for ( int i = 0; i < length; i++ )
+							simulation.step( controlKeyStates );
+						iterations += length;
+						break;
+				}
+			}
+			final long elapsedNanos = Math.max( 1l, System.nanoTime() - startNanos );
+			
+			final int fishesCaught     = input.readInt();
+			final int fishesMissed     = input.readInt();
+			final int iterationCounter = input.readInt();
+			
+			System.out.println( "Seed:                    " + seed );
+			System.out.println( "World size:              " + worldWidth + "x" + worldHeight );
+			System.out.println( "Wave components:         " + waveComponents );
+			System.out.println( "Sub-steps:               " + subSteps );
+			System.out.println( "Iteration rate:          " + iterationsPerSec + " per sec" );
+			System.out.println( "Sine table size:         " + sineTableSize );
+			System.out.println( "Games:                   " + games );
+			System.out.println( "Pauses:                  " + pauses );
+			System.out.println( "Iterations:              " + iterations );
+			System.out.println( "Iterations per sec:      " + (long) ( iterations * 1e9 / elapsedNanos ) );
+			System.out.println( "Fishes caught:           " + gameModel.fishesCaught     + " (recorded: " + fishesCaught     + ")" );
+			System.out.println( "Fishes missed:           " + gameModel.fishesMissed     + " (recorded: " + fishesMissed     + ")" );
+			System.out.println( "Iteration counter:       " + gameModel.iterationCounter + " (recorded: " + iterationCounter + ")" );
+			
+			if ( gameModel.fishesCaught != fishesCaught || gameModel.fishesMissed != fishesMissed || gameModel.iterationCounter != iterationCounter ) {
+				System.out.println( "Replay does not match the recording!" );
+				System.exit( 1 );
+			}
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+}
@@ -0,0 +1,88 @@
+package p;
+
+import static p.Boat.NET_SIZE;
+import static p.Fish.FISH_WIDTH;
+
+/**
+ * A greedy controller which moves the net to intercept the fish it can reach first.<br>
+ * The path of a fish is predicted from its velocity (fishes swim along straight lines). The net
+ * moves vx pixels horizontally (besides drifting with the water) and vy pixels vertically in an iteration,
+ * so a fish can be intercepted after t iterations if its distance from the net along both axes
+ * will be at most the way the net can go in t iterations (plus the radius of the net).
+ * Among the fishes which can be intercepted before they leave the scene the one with the earliest
+ * interception is chosen, and the net is moved towards its predicted position at the time of the interception.
+ * If there is no such fish, the net stays where it is.<br>
+ * The velocities are per the iteration the game is tuned for, so the times are measured in such iterations,
+ * and the moves of an actual iteration are scaled by the time step of the game model.
+ * 
+ * @author Andras Belicza
+ */
+class InterceptController implements BoatController {
+	
+	/** Radius used when checking whether a fish can be intercepted (a little smaller than the radius of the net). */
+	private static final double INTERCEPT_RADIUS = NET_SIZE / 2 - 4;
+	
+	/**
+	 * Produces the states of the control keys for the next iteration of a game.
+	 * @param gameModel        the game model in its current state
+	 * @param controlKeyStates states of the control keys to be set
+	 */
+	public void control( final GameModel gameModel, final boolean[] controlKeyStates ) {
+		final Boat        boat   = gameModel.boat;
+		final EntityStore fishes = gameModel.fishes;
+		final double      drift  = gameModel.waterSurface.getDriftingVelocity();
+		final double      step   = gameModel.timeStep;
+		final double      boatY  = boat.getBoatY();
+		final double      netY   = boatY + boat.y;
+		
+		double targetX    = boat.x;
+		double targetRope = boat.y;
+		double bestTime   = Double.MAX_VALUE;
+		for ( int i = 0; i < fishes.count; i++ ) {
+			final double fishVx = fishes.vx[ i ];
+			// Time until the fish leaves the scene
+			final double leaveTime = ( fishVx > 0.0 ? gameModel.worldWidth - 1 + FISH_WIDTH/2 - fishes.x[ i ] : fishes.x[ i ] + FISH_WIDTH/2 ) / Math.abs( fishVx );
+			
+			double fromTime = interceptTime( fishes.x[ i ] - boat.x, fishVx - drift, boat.vx, step );
+			fromTime        = Math.max( fromTime, interceptTime( fishes.y[ i ] - netY, fishes.vy[ i ], boat.vy, fromTime ) );
+			if ( fromTime <= leaveTime && fromTime < bestTime ) {
+				bestTime   = fromTime;
+				final double time = Math.ceil( fromTime / step ) * step;  // At the end of an actual iteration
+				targetX    = fishes.x[ i ] + fishVx * time;
+				targetRope = fishes.y[ i ] + fishes.vy[ i ] * time - boatY;
+			}
+		}
+		
+		// Without a target we hold the net where it is, only the drifting of the boat is compensated
+		final double nextX = boat.x + drift * step;
+		controlKeyStates[ ControlKeys.LEFT .ordinal() ] = targetX    < nextX  - boat.vx * step / 2;
+		controlKeyStates[ ControlKeys.RIGHT.ordinal() ] = targetX    > nextX  + boat.vx * step / 2;
+		controlKeyStates[ ControlKeys.UP   .ordinal() ] = targetRope < boat.y - boat.vy * step / 2;
+		controlKeyStates[ ControlKeys.DOWN .ordinal() ] = targetRope > boat.y + boat.vy * step / 2;
+	}
+	
+	/**
+	 * Calculates the earliest time when the net can get near enough to a fish along one axis.<br>
+	 * The distance of the fish from the net without moving the net is distance+relativeVelocity*t,
+	 * and the net can get nearer by speed*t, so we need the smallest t for which
+	 * |distance+relativeVelocity*t| &lt;= speed*t+INTERCEPT_RADIUS. The net is usually not slower than the fishes,
+	 * so the inequality usually holds after the earliest time too (which is assumed when the axes are combined).
+	 * @param distance         distance of the fish from the net along the axis
+	 * @param relativeVelocity velocity of the fish relative to the net (if it is not moved) along the axis
+	 * @param speed            the speed of the net along the axis
+	 * @param minTime          the time from which the result is searched
+	 * @return the earliest time not before minTime when the net can get near enough to the fish;
+	 *         Double.MAX_VALUE if the net cannot get near enough to the fish
+	 */
+	private static double interceptTime( final double distance, final double relativeVelocity, final double speed, final double minTime ) {
+		if ( Math.abs( distance + relativeVelocity * minTime ) <= speed * minTime + INTERCEPT_RADIUS )
+			return minTime;
+		// The fish is on the side of the sign of its distance at minTime, the net has to close the gap from that side
+		final double side         = Math.signum( distance + relativeVelocity * minTime );
+		final double closingSpeed = speed - side * relativeVelocity;
+		if ( closingSpeed <= 0.0 )
+			return Double.MAX_VALUE;
+		return ( side * distance - INTERCEPT_RADIUS ) / closingSpeed;
+	}
+	
+}
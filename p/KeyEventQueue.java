@@ -0,0 +1,129 @@
+package p;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free queue of timestamped key events for handing over the key events from a single producer thread
+ * (the event dispatch thread) to a single consumer thread (the game control).<br>
+ * The events are stored in a ring buffer of a fixed capacity. The producer writes the event into the slot at the tail
+ * and publishes it by advancing the tail, the consumer reads the event at the head and frees the slot by advancing the head.
+ * Each counter is written only by its owner (with an ordered write after the slot is written or read), so neither thread
+ * waits for the other, and offering and polling do not allocate memory.<br>
+ * The queue also keeps the latest states of the keys, which are updated even if the queue is full: an event may be dropped
+ * (its time and a tap shorter than an iteration are lost), but a key cannot get stuck because of a dropped release.
+ *
+ * @author Andras Belicza
+ */
+class KeyEventQueue {
+	
+	/** Mask of the slot index in the counters (the capacity is a power of 2). */
+	private final int           mask;
+	/** Keys of the events (ordinals of ControlKeys).                  */
+	private final int[]         keys;
+	/** Tells whether the events are presses (false: releases).        */
+	private final boolean[]     presses;
+	/** Times of the events (System.nanoTime).                         */
+	private final long[]        times;
+	/** Number of events polled (written by the consumer).             */
+	private final AtomicInteger head = new AtomicInteger();
+	/** Number of events offered (written by the producer).            */
+	private final AtomicInteger tail = new AtomicInteger();
+	/** Latest states of the keys, bit i is the state of the key with ordinal i (written by the producer). */
+	private final AtomicInteger keyStates = new AtomicInteger();
+	
+	// The attributes of the last polled event are used only by the consumer.
+	/** Key of the last polled event.                                  */
+	private int                 key;
+	/** Tells whether the last polled event is a press.                */
+	private boolean             pressed;
+	/** Time of the last polled event.                                 */
+	private long                nanos;
+	
+	/**
+	 * Creates a new KeyEventQueue.
+	 * @param capacity min number of events the queue can hold (rounded up to a power of 2)
+	 */
+	public KeyEventQueue( final int capacity ) {
+		final int size = capacity <= 1 ? 1 : Integer.highestOneBit( capacity - 1 ) << 1;
+		mask    = size - 1;
+		keys    = new int    [ size ];
+		presses = new boolean[ size ];
+		times   = new long   [ size ];
+	}
+	
+	/**
+	 * Offers an event to the queue. Must be called by the producer.<br>
+	 * The latest state of the key is updated even if the queue is full.
+	 * @param key     key of the event (ordinal of ControlKeys)
+	 * @param pressed true if the key was pressed, false if it was released
+	 * @param nanos   time of the event (System.nanoTime)
+	 * @return true if the event was queued; false if the queue is full (the event is dropped)
+	 */
+	public boolean offer( final int key, final boolean pressed, final long nanos ) {
+		// The states are written before the slot is published, so they are never older than the polled events
+		final int states = keyStates.get();
+		keyStates.lazySet( pressed ? states | 1 << key : states & ~( 1 << key ) );
+		
+		final int t = tail.get();
+		if ( t - head.get() == keys.length )
+			return false;
+		
+		final int slot = t & mask;
+		keys   [ slot ] = key;
+		presses[ slot ] = pressed;
+		times  [ slot ] = nanos;
+		tail.lazySet( t + 1 );  // Publishes the slot
+		return true;
+	}
+	
+	/**
+	 * Polls the next event from the queue. Must be called by the consumer.<br>
+	 * The polled event can be read by getKey(), isPressed() and getNanos().
+	 * @return true if an event was polled; false if the queue is empty
+	 */
+	public boolean poll() {
+		final int h = head.get();
+		if ( h == tail.get() )
+			return false;
+		
+		final int slot = h & mask;
+		key     = keys   [ slot ];
+		pressed = presses[ slot ];
+		nanos   = times  [ slot ];
+		head.lazySet( h + 1 );  // Frees the slot
+		return true;
+	}
+	
+	/**
+	 * Returns the latest states of the keys, including the events not polled yet or dropped. Can be called by the consumer.
+	 * @return the latest states of the keys, bit i is the state of the key with ordinal i
+	 */
+	public int getKeyStates() {
+		return keyStates.get();
+	}
+	
+	/**
+	 * Returns the key of the last polled event.
+	 * @return the key of the last polled event (ordinal of ControlKeys)
+	 */
+	public int getKey() {
+		return key;
+	}
+	
+	/**
+	 * Tells whether the last polled event is a press.
+	 * @return true if the key was pressed, false if it was released
+	 */
+	public boolean isPressed() {
+		return pressed;
+	}
+	
+	/**
+	 * Returns the time of the last polled event.
+	 * @return the time of the last polled event (System.nanoTime)
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+	
+}
@@ -0,0 +1,135 @@
+package p;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with logarithmic buckets (in the style of HdrHistogram).<br>
+ * Values below LINEAR_LIMIT have their own buckets, larger values are counted in SUB_BUCKETS buckets
+ * per power of 2, so the relative error of the reported values is at most 1/SUB_BUCKETS (12.5%),
+ * and the histogram has a fixed size for the whole range of long values.<br>
+ * Percentiles are reported over windows: closeWindow() takes the values recorded since the previous call,
+ * so the reported values follow the current behavior instead of the whole run.<br>
+ * Recording is cheap and does not allocate memory. Values must be recorded by one thread at a time,
+ * windows must be closed and read by one thread at a time (the recording and the reading thread may differ).
+ * 
+ * @author Andras Belicza
+ */
+class LatencyHistogram {
+
+	/** Base 2 logarithm of the number of buckets per power of 2.   */
+	private static final int SUB_BUCKET_BITS = 3;
+	/** Number of buckets per power of 2.                           */
+	private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	/** Values below this have their own buckets.                   */
+	private static final int LINEAR_LIMIT    = 2 * SUB_BUCKETS;
+	/** Number of buckets.                                          */
+	private static final int BUCKETS         = LINEAR_LIMIT + ( 63 - SUB_BUCKET_BITS - 1 ) * SUB_BUCKETS;
+	
+	/** Counts of the buckets.            */
+	private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+	/** Number of recorded values.        */
+	private volatile long         count;
+	/** Max recorded value.               */
+	private volatile long         max;
+	/** Counts of the buckets at the start of the current window.      */
+	private final long[]          windowStartCounts = new long[ BUCKETS ];
+	/** Counts of the buckets in the last closed window.               */
+	private final long[]          windowCounts      = new long[ BUCKETS ];
+	/** Number of values in the last closed window.                    */
+	private long                  windowCount;
+	
+	/**
+	 * Records a value.
+	 * @param value value to be recorded; negative values are recorded as 0
+	 */
+	public void record( final long value ) {
+		final long v      = value < 0 ? 0 : value;
+		final int  bucket = getBucket( v );
+		counts.lazySet( bucket, counts.get( bucket ) + 1 );
+		if ( v > max )
+			max = v;
+		count++;
+	}
+	
+	/**
+	 * Returns the number of recorded values.
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the max recorded value.
+	 * @return the max recorded value; 0 if no value has been recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Closes the current window: the values recorded since the previous call become the values of the last window,
+	 * and a new window is started. If no value has been recorded since the previous call, the last window is kept.
+	 */
+	public void closeWindow() {
+		long total = 0;
+		for ( int i = 0; i < BUCKETS; i++ )
+			total += counts.get( i ) - windowStartCounts[ i ];
+		if ( total == 0 )
+			return;
+		
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			final long count = counts.get( i );
+			windowCounts     [ i ] = count - windowStartCounts[ i ];
+			windowStartCounts[ i ] = count;
+		}
+		windowCount = total;
+	}
+	
+	/**
+	 * Returns the value at a percentile of the last closed window: the value which is greater than or equal to
+	 * the specified percent of the values of the window. The 100th percentile is the max of the window.
+	 * @param percentile the percentile, in the range of 0.0..100.0
+	 * @return the value at the percentile (the highest value of its bucket, but not more than the max); 0 if no window has values
+	 */
+	public long getValueAtPercentile( final double percentile ) {
+		if ( windowCount == 0 )
+			return 0;
+		
+		final long target = Math.max( 1l, (long) Math.ceil( percentile / 100.0 * windowCount ) );
+		long       sum    = 0;
+		for ( int i = 0; i < BUCKETS; i++ )
+			if ( ( sum += windowCounts[ i ] ) >= target )
+				return Math.min( getHighestValue( i ), max );
+		return max;
+	}
+	
+	/**
+	 * Returns the bucket of a value.
+	 * @param value a non-negative value
+	 * @return the bucket of the value
+	 */
+	private static int getBucket( final long value ) {
+		if ( value < LINEAR_LIMIT )
+			return (int) value;
+		
+		final int exponent = 63 - Long.numberOfLeadingZeros( value );
+		final int shift    = exponent - SUB_BUCKET_BITS;
+		return LINEAR_LIMIT + ( shift - 1 ) * SUB_BUCKETS + (int) ( ( value >>> shift ) & ( SUB_BUCKETS - 1 ) );
+	}
+	
+	/**
+	 * Returns the highest value counted in a bucket.
+	 * @param bucket the bucket
+	 * @return the highest value counted in the bucket
+	 */
+	private static long getHighestValue( final int bucket ) {
+		if ( bucket < LINEAR_LIMIT )
+			return bucket;
+		
+		final int shift = ( bucket - LINEAR_LIMIT ) / SUB_BUCKETS + 1;
+		final int sub   = ( bucket - LINEAR_LIMIT ) % SUB_BUCKETS;
+		return ( (long) ( SUB_BUCKETS + sub + 1 ) << shift ) - 1;
+	}
+	
+}
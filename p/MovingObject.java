@@ -15,6 +15,10 @@ class MovingObject {
 	protected double       x;
 	/** y coordinate of the object.                                   */
 	protected double       y;
+	/** x coordinate of the object in the previous iteration.         */
+	protected double       prevX;
+	/** y coordinate of the object in the previous iteration.         */
+	protected double       prevY;
 	/** Horizontal component of the velocity of the object.
 	 * Note: in our all cases velocity does not change, can be final! */
 	protected final double vx;
@@ -31,10 +35,12 @@ class MovingObject {
 	 * @param vy the vetrical component of the velocity
 	 */
 	public MovingObject( final double x, final double y, final double vx, final double vy ) {
-		this.x  = x;
-		this.y  = y;
-		this.vx = vx;
-		this.vy = vy;
+		this.x     = x;
+		this.y     = y;
+		this.prevX = x;
+		this.prevY = y;
+		this.vx    = vx;
+		this.vy    = vy;
 	}
 	
 	/**
@@ -53,11 +59,50 @@ class MovingObject {
 		return (int) y;
 	}
 	
+	/**
+	 * Returns the x interpolated between the previous and the current iteration as an integer.<br>
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated x as an integer
+	 */
+	public int getInterpolatedX( final double alpha ) {
+		return (int) ( prevX + ( x - prevX ) * alpha );
+	}
+	
+	/**
+	 * Returns the y interpolated between the previous and the current iteration as an integer.<br>
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated y as an integer
+	 */
+	public int getInterpolatedY( final double alpha ) {
+		return (int) ( prevY + ( y - prevY ) * alpha );
+	}
+	
+	/**
+	 * Stores the current position as the position of the previous iteration.
+	 * Must be called before the position is changed in an iteration.
+	 */
+	protected void storePosition() {
+		prevX = x;
+		prevY = y;
+	}
+	
+	/**
+	 * Copies the position of another moving object into this one.
+	 * @param movingObject the moving object whose position to be copied
+	 */
+	public void copyPositionFrom( final MovingObject movingObject ) {
+		x     = movingObject.x;
+		y     = movingObject.y;
+		prevX = movingObject.prevX;
+		prevY = movingObject.prevY;
+	}
+	
 	/**
 	 * Makes this moving object to step one.
 	 * Stepping means increasing position with the velocity.
 	 */
 	public void makeStep() {
+		storePosition();
 		x += vx;
 		y += vy;
 	}
@@ -0,0 +1,35 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of painting a frame of the game scene.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.Paint" )
+@Label( "Paint" )
+@Description( "Painting a frame of the game scene" )
+@Category( { "Fishing", "Rendering" } )
+@Enabled( false )
+@StackTrace( false )
+class PaintEvent extends Event {
+
+	/** Width of the painted (dirty) region.        */
+	@Label( "Dirty Width" )
+	public int dirtyWidth;
+	/** Height of the painted (dirty) region.       */
+	@Label( "Dirty Height" )
+	public int dirtyHeight;
+	/** Area of the painted (dirty) region in pixels. */
+	@Label( "Dirty Area" )
+	public int dirtyArea;
+	
+}
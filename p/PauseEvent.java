@@ -0,0 +1,32 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of pausing or resuming the game.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.Pause" )
+@Label( "Pause" )
+@Description( "The game was paused or resumed" )
+@Category( { "Fishing", "Control" } )
+@Enabled( false )
+@StackTrace( false )
+class PauseEvent extends Event {
+
+	/** Tells whether the game was paused (or resumed). */
+	@Label( "Paused" )
+	public boolean paused;
+	/** Tells whether game is over.                     */
+	@Label( "Game Over" )
+	public boolean gameOver;
+	
+}
@@ -0,0 +1,242 @@
+package p;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Performance metrics of Fishing: latencies of the iterations and painting, input latency (from a key event
+ * to the first presented frame showing its effect), achieved rates, entity counts and allocation rate.<br>
+ * Iterations must be recorded by the game control thread, frames and input latencies by the thread painting the scene.
+ * Recording is cheap and does not allocate memory. The metrics can be read by any thread,
+ * they are displayed by the game scene and exposed as an MBean (see PerformanceMetricsMBean).
+ * 
+ * @author Andras Belicza
+ */
+public class PerformanceMetrics implements PerformanceMetricsMBean {
+
+	/** Object name of the MBean of the performance metrics. */
+	public  static final String OBJECT_NAME       = "p:type=PerformanceMetrics";
+	/** Length of the window the rates are measured over.     */
+	private static final long   RATE_WINDOW_NANOS    = 1000000000l;
+	/** Length of the window the latency percentiles are calculated over. */
+	private static final long   LATENCY_WINDOW_NANOS = 5000000000l;
+	
+	/** Latencies of the iterations in nanoseconds.             */
+	private final LatencyHistogram tickLatencies  = new LatencyHistogram();
+	/** Latencies of painting the frames in nanoseconds.        */
+	private final LatencyHistogram paintLatencies = new LatencyHistogram();
+	/** Latencies from the key events to the presented frames in nanoseconds. */
+	private final LatencyHistogram inputLatencies = new LatencyHistogram();
+	/** Number of dropped iterations.                           */
+	private volatile long droppedTickCount;
+	/** Number of fishes after the last iteration.              */
+	private volatile int  fishCount;
+	/** Number of bubbles after the last iteration.             */
+	private volatile int  bubbleCount;
+	/** Id of the thread recording the iterations; -1 if none yet. */
+	private volatile long tickThreadId  = -1;
+	/** Id of the thread recording the frames; -1 if none yet.  */
+	private volatile long paintThreadId = -1;
+	
+	// The attributes of the rate window are guarded by this object.
+	/** Start time of the current rate window.                  */
+	private long   windowStartNanos;
+	/** Number of iterations at the start of the current window. */
+	private long   windowStartTicks;
+	/** Number of frames at the start of the current window.    */
+	private long   windowStartFrames;
+	/** Allocated bytes at the start of the current window.     */
+	private long   windowStartAllocatedBytes;
+	/** Iterations per second measured in the last window.      */
+	private double ticksPerSec;
+	/** Frames per second measured in the last window.          */
+	private double framesPerSec;
+	/** Allocated bytes per second measured in the last window. */
+	private double allocationRate = -1.0;
+	/** Start time of the current latency window.               */
+	private long   latencyWindowStartNanos;
+	
+	/**
+	 * Creates a new PerformanceMetrics.
+	 */
+	public PerformanceMetrics() {
+		windowStartNanos        = System.nanoTime();
+		latencyWindowStartNanos = windowStartNanos;
+	}
+	
+	/**
+	 * Records an iteration.
+	 * @param nanos     time it took to calculate the iteration in nanoseconds
+	 * @param gameModel the game model after the iteration
+	 */
+	public void recordTick( final long nanos, final GameModel gameModel ) {
+		tickLatencies.record( nanos );
+		fishCount   = gameModel.fishes.count;
+		bubbleCount = gameModel.bubbles.count;
+		if ( tickThreadId < 0 )
+			tickThreadId = Thread.currentThread().getId();
+	}
+	
+	/**
+	 * Records dropped iterations.
+	 * @param ticks number of dropped iterations
+	 */
+	public void recordDroppedTicks( final long ticks ) {
+		droppedTickCount += ticks;
+	}
+	
+	/**
+	 * Records a painted frame.
+	 * @param nanos time it took to paint the frame in nanoseconds
+	 */
+	public void recordPaint( final long nanos ) {
+		paintLatencies.record( nanos );
+		if ( paintThreadId != Thread.currentThread().getId() )  // Painting may move to another thread (e.g. when the EDT is restarted)
+			paintThreadId = Thread.currentThread().getId();
+	}
+	
+	/**
+	 * Records an input latency.
+	 * @param nanos time from a key event to the first presented frame showing its effect in nanoseconds
+	 */
+	public void recordInputLatency( final long nanos ) {
+		inputLatencies.record( nanos );
+	}
+	
+	public long getTickCount() {
+		return tickLatencies.getCount();
+	}
+	
+	public long getDroppedTickCount() {
+		return droppedTickCount;
+	}
+	
+	public long getFrameCount() {
+		return paintLatencies.getCount();
+	}
+	
+	public synchronized double getTicksPerSec() {
+		updateRates();
+		return ticksPerSec;
+	}
+	
+	public synchronized double getFramesPerSec() {
+		updateRates();
+		return framesPerSec;
+	}
+	
+	public synchronized double getTickLatencyMedianMicros() {
+		updateLatencies();
+		return tickLatencies.getValueAtPercentile( 50.0 ) / 1000.0;
+	}
+	
+	public synchronized double getTickLatency99Micros() {
+		updateLatencies();
+		return tickLatencies.getValueAtPercentile( 99.0 ) / 1000.0;
+	}
+	
+	public synchronized double getTickLatencyMaxMicros() {
+		updateLatencies();
+		return tickLatencies.getValueAtPercentile( 100.0 ) / 1000.0;
+	}
+	
+	public synchronized double getPaintLatencyMedianMicros() {
+		updateLatencies();
+		return paintLatencies.getValueAtPercentile( 50.0 ) / 1000.0;
+	}
+	
+	public synchronized double getPaintLatency99Micros() {
+		updateLatencies();
+		return paintLatencies.getValueAtPercentile( 99.0 ) / 1000.0;
+	}
+	
+	public synchronized double getPaintLatencyMaxMicros() {
+		updateLatencies();
+		return paintLatencies.getValueAtPercentile( 100.0 ) / 1000.0;
+	}
+	
+	public long getInputCount() {
+		return inputLatencies.getCount();
+	}
+	
+	public synchronized double getInputLatencyMedianMicros() {
+		updateLatencies();
+		return inputLatencies.getValueAtPercentile( 50.0 ) / 1000.0;
+	}
+	
+	public synchronized double getInputLatency99Micros() {
+		updateLatencies();
+		return inputLatencies.getValueAtPercentile( 99.0 ) / 1000.0;
+	}
+	
+	public synchronized double getInputLatencyMaxMicros() {
+		updateLatencies();
+		return inputLatencies.getValueAtPercentile( 100.0 ) / 1000.0;
+	}
+	
+	public int getFishCount() {
+		return fishCount;
+	}
+	
+	public int getBubbleCount() {
+		return bubbleCount;
+	}
+	
+	public synchronized double getAllocationRate() {
+		updateRates();
+		return allocationRate;
+	}
+	
+	/**
+	 * Calculates the rates if the current rate window is over, and starts a new window.
+	 */
+	private void updateRates() {
+		final long now     = System.nanoTime();
+		final long elapsed = now - windowStartNanos;
+		if ( elapsed < RATE_WINDOW_NANOS )
+			return;
+		
+		final long ticks          = getTickCount();
+		final long frames         = getFrameCount();
+		final long allocatedBytes = getAllocatedBytes();
+		ticksPerSec    = ( ticks  - windowStartTicks  ) * 1e9 / elapsed;
+		framesPerSec   = ( frames - windowStartFrames ) * 1e9 / elapsed;
+		allocationRate = allocatedBytes < 0 || windowStartAllocatedBytes < 0 ? -1.0 : Math.max( 0l, allocatedBytes - windowStartAllocatedBytes ) * 1e9 / elapsed;
+		
+		windowStartNanos          = now;
+		windowStartTicks          = ticks;
+		windowStartFrames         = frames;
+		windowStartAllocatedBytes = allocatedBytes;
+	}
+	
+	/**
+	 * Closes the latency windows of the histograms if the current latency window is over, and starts a new window.
+	 */
+	private void updateLatencies() {
+		final long now = System.nanoTime();
+		if ( now - latencyWindowStartNanos < LATENCY_WINDOW_NANOS )
+			return;
+		
+		tickLatencies .closeWindow();
+		paintLatencies.closeWindow();
+		inputLatencies.closeWindow();
+		latencyWindowStartNanos = now;
+	}
+	
+	/**
+	 * Returns the number of bytes allocated by the game control and the painting threads.
+	 * @return the number of bytes allocated by the game control and the painting threads; -1 if the JVM does not support measuring it
+	 */
+	private long getAllocatedBytes() {
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if ( !( threadMXBean instanceof com.sun.management.ThreadMXBean ) )
+			return -1;
+		
+		long allocatedBytes = 0;
+		for ( final long threadId : new long[] { tickThreadId, paintThreadId } )
+			if ( threadId >= 0 )
+				allocatedBytes += Math.max( 0l, ( (com.sun.management.ThreadMXBean) threadMXBean ).getThreadAllocatedBytes( threadId ) );
+		return allocatedBytes;
+	}
+	
+}
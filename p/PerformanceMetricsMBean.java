@@ -0,0 +1,122 @@
+package p;
+
+/**
+ * Management interface of the performance metrics of Fishing.<br>
+ * Latencies are in microseconds, percentiles and max values are calculated over the last latency window
+ * (the last 5 seconds in which values were recorded), with the precision of the buckets of LatencyHistogram.
+ * 
+ * @author Andras Belicza
+ */
+public interface PerformanceMetricsMBean {
+
+	/**
+	 * Returns the number of calculated iterations.
+	 * @return the number of calculated iterations
+	 */
+	long getTickCount();
+	
+	/**
+	 * Returns the number of iterations dropped because the game control could not keep up with the schedule.
+	 * @return the number of dropped iterations
+	 */
+	long getDroppedTickCount();
+	
+	/**
+	 * Returns the number of painted frames.
+	 * @return the number of painted frames
+	 */
+	long getFrameCount();
+	
+	/**
+	 * Returns the number of iterations calculated per second (measured since the previous measurement, over at least a second).
+	 * @return the number of iterations calculated per second
+	 */
+	double getTicksPerSec();
+	
+	/**
+	 * Returns the number of frames painted per second (measured since the previous measurement, over at least a second).
+	 * @return the number of frames painted per second
+	 */
+	double getFramesPerSec();
+	
+	/**
+	 * Returns the median latency of calculating an iteration.
+	 * @return the median latency of calculating an iteration in microseconds
+	 */
+	double getTickLatencyMedianMicros();
+	
+	/**
+	 * Returns the 99th percentile latency of calculating an iteration.
+	 * @return the 99th percentile latency of calculating an iteration in microseconds
+	 */
+	double getTickLatency99Micros();
+	
+	/**
+	 * Returns the max latency of calculating an iteration.
+	 * @return the max latency of calculating an iteration in microseconds
+	 */
+	double getTickLatencyMaxMicros();
+	
+	/**
+	 * Returns the median latency of painting a frame.
+	 * @return the median latency of painting a frame in microseconds
+	 */
+	double getPaintLatencyMedianMicros();
+	
+	/**
+	 * Returns the 99th percentile latency of painting a frame.
+	 * @return the 99th percentile latency of painting a frame in microseconds
+	 */
+	double getPaintLatency99Micros();
+	
+	/**
+	 * Returns the max latency of painting a frame.
+	 * @return the max latency of painting a frame in microseconds
+	 */
+	double getPaintLatencyMaxMicros();
+	
+	/**
+	 * Returns the number of inputs whose latency has been measured (from the first key event applied by an iteration
+	 * to the first presented frame showing the effect of the iteration).
+	 * @return the number of measured inputs
+	 */
+	long getInputCount();
+	
+	/**
+	 * Returns the median latency from a key event to the first presented frame showing its effect.
+	 * @return the median input latency in microseconds
+	 */
+	double getInputLatencyMedianMicros();
+	
+	/**
+	 * Returns the 99th percentile latency from a key event to the first presented frame showing its effect.
+	 * @return the 99th percentile input latency in microseconds
+	 */
+	double getInputLatency99Micros();
+	
+	/**
+	 * Returns the max latency from a key event to the first presented frame showing its effect.
+	 * @return the max input latency in microseconds
+	 */
+	double getInputLatencyMaxMicros();
+	
+	/**
+	 * Returns the number of fishes after the last iteration.
+	 * @return the number of fishes after the last iteration
+	 */
+	int getFishCount();
+	
+	/**
+	 * Returns the number of bubbles after the last iteration.
+	 * @return the number of bubbles after the last iteration
+	 */
+	int getBubbleCount();
+	
+	/**
+	 * Returns the number of bytes allocated per second by the game control and the painting threads
+	 * (measured since the previous measurement, over at least a second).
+	 * @return the number of bytes allocated per second; -1 if the JVM does not support measuring it
+	 */
+	double getAllocationRate();
+	
+}
@@ -0,0 +1,154 @@
+package p;
+
+import java.awt.Rectangle;
+
+import static p.Boat.NET_SIZE;
+import static p.Bubble.BUBBLE_OSCILLATION_AMPLITUDE;
+import static p.Bubble.BUBBLE_SIZE;
+import static p.GameScene.SCENE_HEIGHT;
+import static p.GameScene.SCENE_WIDTH;
+import static p.SpriteAtlas.BOAT_ANCHOR;
+import static p.SpriteAtlas.FISH_ANCHOR;
+import static p.WaterSurface.SEA_LEVEL;
+
+/**
+ * A snapshot of the game to be rendered.<br>
+ * The game control fills a snapshot after every iteration and publishes it to the game scene,
+ * so painting never reads the game model being modified by the game control.<br>
+ * The scene shows a viewport of the world (of the size of the scene) through a camera which follows the boat
+ * (and the net, if the world is higher than the scene). The camera is kept inside the world.
+ * 
+ * @author Andras Belicza
+ */
+class RenderSnapshot {
+
+	/** Copy of the game model.                                                */
+	public final GameModel gameModel;
+	/** Bounds of the visible moving parts (waves, boat with the net, fishes, bubbles) of the snapshot
+	 * in the coordinates of the scene, containing them at any interpolation factor.
+	 * If the camera moves in the snapshot, the bounds are the whole scene.     */
+	public final Rectangle bounds    = new Rectangle();
+	/** Scheduled time of the iteration of the snapshot (System.nanoTime).     */
+	public long            iterationNanos;
+	/** x coordinate of the camera (the left of the viewport in the world) in the previous iteration. */
+	public int             prevCameraX;
+	/** y coordinate of the camera (the top of the viewport in the world) in the previous iteration.  */
+	public int             prevCameraY;
+	/** x coordinate of the camera in the iteration of the snapshot.           */
+	public int             cameraX;
+	/** y coordinate of the camera in the iteration of the snapshot.           */
+	public int             cameraY;
+	/** Sequence number of the last input (the key events applied by an iteration) up to the iteration of the snapshot;
+	 * set by the game control, 0 if there has been no input.                   */
+	public long            inputSequence;
+	/** Time of the first key event of the last input (System.nanoTime).       */
+	public long            inputNanos;
+	
+	/**
+	 * Creates a new RenderSnapshot.
+	 * @param gameModel the game model whose snapshots are to be stored (its world size, wave spectrum, iteration rate and sine table size are used)
+	 */
+	public RenderSnapshot( final GameModel gameModel ) {
+		this.gameModel = new GameModel( 0l, gameModel.worldWidth, gameModel.worldHeight, gameModel.waterSurface.getSpectrum(), gameModel.iterationsPerSec,
+		                                gameModel.waterSurface.getSineTableSize() );
+	}
+	
+	/**
+	 * Fills this snapshot.
+	 * @param gameModel      the game model to be copied
+	 * @param iterationNanos scheduled time of the iteration of the game model
+	 */
+	public void fill( final GameModel gameModel, final long iterationNanos ) {
+		this.gameModel.copyFrom( gameModel );
+		this.iterationNanos = iterationNanos;
+		prevCameraX         = getCameraX( 0.0 );
+		prevCameraY         = getCameraY( 0.0 );
+		cameraX             = getCameraX( 1.0 );
+		cameraY             = getCameraY( 1.0 );
+		calculateBounds();
+	}
+	
+	/**
+	 * Tells whether the camera moves in the snapshot (between the previous and the current iteration).
+	 * @return true if the camera moves in the snapshot; false otherwise
+	 */
+	public boolean isCameraMoving() {
+		return cameraX != prevCameraX || cameraY != prevCameraY;
+	}
+	
+	/**
+	 * Returns the x coordinate of the camera interpolated between the previous and the current iteration.<br>
+	 * The boat is in the middle of the viewport, unless the viewport would get out of the world.
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the x coordinate of the camera (the left of the viewport in the world)
+	 */
+	public int getCameraX( final double alpha ) {
+		return Math.max( 0, Math.min( gameModel.worldWidth - SCENE_WIDTH, gameModel.boat.getInterpolatedX( alpha ) - SCENE_WIDTH/2 ) );
+	}
+	
+	/**
+	 * Returns the y coordinate of the camera interpolated between the previous and the current iteration.<br>
+	 * The net (without the waves, so the camera does not sway) is in the middle of the viewport,
+	 * unless the viewport would get out of the world.
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the y coordinate of the camera (the top of the viewport in the world)
+	 */
+	public int getCameraY( final double alpha ) {
+		return Math.max( 0, Math.min( gameModel.worldHeight - SCENE_HEIGHT, SEA_LEVEL + gameModel.boat.getInterpolatedY( alpha ) - SCENE_HEIGHT/2 ) );
+	}
+	
+	/**
+	 * Calculates the bounds of the visible moving parts.<br>
+	 * The bounds of the moving parts are calculated between their previous and current positions,
+	 * so they contain them at any interpolation factor. The parts outside of the viewport are culled.
+	 */
+	private void calculateBounds() {
+		if ( isCameraMoving() ) {
+			// Everything moves on the scene
+			bounds.setBounds( 0, 0, SCENE_WIDTH, SCENE_HEIGHT );
+			return;
+		}
+		
+		final int VIEW_MIN_X = cameraX;
+		final int VIEW_MAX_X = cameraX + SCENE_WIDTH - 1;
+		
+		// The waves: the whole width of the viewport around the sea level
+		final WaterSurface waterSurface = gameModel.waterSurface;
+		final int          amplitude    = (int) Math.max( waterSurface.surfaceAmplitude, waterSurface.prevSurfaceAmplitude ) + 1;
+		int minX = VIEW_MIN_X;
+		int maxX = VIEW_MAX_X;
+		int minY = SEA_LEVEL - amplitude;
+		int maxY = SEA_LEVEL + amplitude;
+		
+		// The boat with the net (the net hangs from the boat, the boat floats on the waves)
+		final Boat boat = gameModel.boat;
+		minX = Math.min( minX, (int) Math.min( boat.x, boat.prevX ) - BOAT_ANCHOR );
+		maxX = Math.max( maxX, (int) Math.max( boat.x, boat.prevX ) + BOAT_ANCHOR );
+		minY = Math.min( minY, SEA_LEVEL - amplitude - BOAT_ANCHOR );
+		maxY = Math.max( maxY, SEA_LEVEL + amplitude + (int) Math.max( boat.y, boat.prevY ) + NET_SIZE/2 + 1 );
+		
+		final EntityStore fishes = gameModel.fishes;
+		for ( int i = 0; i < fishes.count; i++ ) {
+			if ( Math.max( fishes.x[ i ], fishes.prevX[ i ] ) + FISH_ANCHOR < VIEW_MIN_X || Math.min( fishes.x[ i ], fishes.prevX[ i ] ) - FISH_ANCHOR > VIEW_MAX_X )
+				continue;
+			minX = Math.min( minX, (int) Math.min( fishes.x[ i ], fishes.prevX[ i ] ) - FISH_ANCHOR );
+			maxX = Math.max( maxX, (int) Math.max( fishes.x[ i ], fishes.prevX[ i ] ) + FISH_ANCHOR );
+			minY = Math.min( minY, (int) Math.min( fishes.y[ i ], fishes.prevY[ i ] ) - FISH_ANCHOR );
+			maxY = Math.max( maxY, (int) Math.max( fishes.y[ i ], fishes.prevY[ i ] ) + FISH_ANCHOR );
+		}
+		
+		final int         BUBBLE_EXTENT = BUBBLE_SIZE/2 + (int) BUBBLE_OSCILLATION_AMPLITUDE + 2;
+		final EntityStore bubbles       = gameModel.bubbles;
+		for ( int i = 0; i < bubbles.count; i++ ) {
+			if ( Math.max( bubbles.x[ i ], bubbles.prevX[ i ] ) + BUBBLE_EXTENT < VIEW_MIN_X || Math.min( bubbles.x[ i ], bubbles.prevX[ i ] ) - BUBBLE_EXTENT > VIEW_MAX_X )
+				continue;
+			minX = Math.min( minX, (int) Math.min( bubbles.x[ i ], bubbles.prevX[ i ] ) - BUBBLE_EXTENT );
+			maxX = Math.max( maxX, (int) Math.max( bubbles.x[ i ], bubbles.prevX[ i ] ) + BUBBLE_EXTENT );
+			minY = Math.min( minY, (int) Math.min( bubbles.y[ i ], bubbles.prevY[ i ] ) - BUBBLE_EXTENT );
+			maxY = Math.max( maxY, (int) Math.max( bubbles.y[ i ], bubbles.prevY[ i ] ) + BUBBLE_EXTENT );
+		}
+		
+		bounds.setBounds( minX - cameraX, minY - cameraY, maxX - minX + 1, maxY - minY + 1 );
+	}
+	
+}
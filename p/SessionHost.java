@@ -0,0 +1,176 @@
+package p;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static p.Simulation.ITERATIONS_PER_SEC;
+
+/**
+ * Hosts many independent game sessions without any display.<br>
+ * The sessions are periodic tasks on a shared scheduler with a few threads (a thread per session would not scale
+ * to thousands of sessions). Every session is scheduled with its own start time, so the iterations of the sessions
+ * are spread over the iteration period instead of being calculated at the same time.<br>
+ * <br>
+ * Can be started on its own to load test the host:<br>
+ *   java -Djava.awt.headless=true -cp . p.SessionHost [sessions [threads [seconds]]]
+ * 
+ * @author Andras Belicza
+ */
+class SessionHost {
+
+	/** Default number of sessions of the load test.            */
+	private static final int LOAD_TEST_SESSIONS = 10000;
+	/** Default length of the load test in seconds.             */
+	private static final int LOAD_TEST_SECONDS  = 10;
+	
+	/** The scheduler calling the sessions.                     */
+	private final ScheduledThreadPoolExecutor scheduler;
+	/** Number of iterations per second of the sessions.        */
+	private final int                          iterationsPerSec;
+	/** Length of an iteration in nanoseconds.                  */
+	private final long                         iterationNanos;
+	/** The hosted sessions mapped from their identifiers.      */
+	private final ConcurrentMap< Long, GameSession > sessions = new ConcurrentHashMap< Long, GameSession >();
+	/** Counter used to generate the identifiers of sessions.   */
+	private final AtomicLong                   sessionIdCounter = new AtomicLong();
+	
+	/**
+	 * Creates a new SessionHost with as many threads as many processors are available,
+	 * and with the iteration rate the game model is tuned for.
+	 */
+	public SessionHost() {
+		this( Runtime.getRuntime().availableProcessors(), ITERATIONS_PER_SEC );
+	}
+	
+	/**
+	 * Creates a new SessionHost.
+	 * @param threads           number of threads calculating the iterations of the sessions
+	 * @param iterationsPerSec  number of iterations per second of the sessions
+	 */
+	public SessionHost( final int threads, final int iterationsPerSec ) {
+		this.iterationsPerSec = Math.max( 1, iterationsPerSec );
+		iterationNanos        = 1000000000l / this.iterationsPerSec;
+		scheduler             = new ScheduledThreadPoolExecutor( Math.max( 1, threads ), new ThreadFactory() {
+			private final AtomicInteger threadCounter = new AtomicInteger();
+			public Thread newThread( final Runnable runnable ) {
+				final Thread thread = new Thread( runnable, "Fishing session host thread " + threadCounter.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+		scheduler.setRemoveOnCancelPolicy( true );
+	}
+	
+	/**
+	 * Creates and starts a new session with a new seed. The new session is paused.
+	 * @return the new session
+	 */
+	public GameSession createSession() {
+		return createSession( FastRandom.newSeed() );
+	}
+	
+	/**
+	 * Creates and starts a new session. The new session is paused.
+	 * @param seed seed of the first game of the session
+	 * @return the new session
+	 */
+	public GameSession createSession( final long seed ) {
+		final GameSession session = new GameSession( this, sessionIdCounter.incrementAndGet(), seed, iterationsPerSec );
+		sessions.put( session.getId(), session );
+		// The start time of the session is spread over the iteration period by its identifier
+		session.setFuture( scheduler.scheduleAtFixedRate( session, session.getId() * 7919 % iterationNanos, iterationNanos, TimeUnit.NANOSECONDS ) );
+		return session;
+	}
+	
+	/**
+	 * Returns a hosted session.
+	 * @param id identifier of the session
+	 * @return the session with the specified identifier; null if there is no such session
+	 */
+	public GameSession getSession( final long id ) {
+		return sessions.get( id );
+	}
+	
+	/**
+	 * Closes a session. The session is not called anymore.
+	 * @param id identifier of the session to be closed
+	 */
+	public void closeSession( final long id ) {
+		final GameSession session = sessions.remove( id );
+		if ( session != null )
+			session.cancel();
+	}
+	
+	/**
+	 * Returns the number of hosted sessions.
+	 * @return the number of hosted sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+	
+	/**
+	 * Returns the total number of iterations calculated by the hosted sessions.
+	 * @return the total number of iterations calculated by the hosted sessions
+	 */
+	public long getIterations() {
+		long iterations = 0;
+		for ( final GameSession session : sessions.values() )
+			iterations += session.getIterations();
+		return iterations;
+	}
+	
+	/**
+	 * Closes all sessions and stops the threads of the host.
+	 */
+	public void shutdown() {
+		scheduler.shutdownNow();
+		sessions.clear();
+	}
+	
+	/**
+	 * Runs a load test: hosts the specified number of sessions which play with changing random keys
+	 * (a session is resumed if its game is over), and prints how many iterations were calculated
+	 * compared to the scheduled number of iterations.
+	 * The iteration rate of the sessions can be set by the fishing.iterationsPerSec system property.
+	 * @param arguments optionally the number of sessions, the number of threads and the length of the test in seconds
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	public static void main( final String[] arguments ) throws InterruptedException {
+		final int sessionCount = arguments.length > 0 ? Integer.parseInt( arguments[ 0 ] ) : LOAD_TEST_SESSIONS;
+		final int threads      = arguments.length > 1 ? Integer.parseInt( arguments[ 1 ] ) : Runtime.getRuntime().availableProcessors();
+		final int seconds      = arguments.length > 2 ? Integer.parseInt( arguments[ 2 ] ) : LOAD_TEST_SECONDS;
+		
+		final int iterationsPerSec = Math.max( 1, Integer.getInteger( "fishing.iterationsPerSec", ITERATIONS_PER_SEC ) );
+		
+		final SessionHost   host     = new SessionHost( threads, iterationsPerSec );
+		final GameSession[] sessions = new GameSession[ sessionCount ];
+		for ( int i = 0; i < sessionCount; i++ )
+			( sessions[ i ] = host.createSession() ).setPaused( false );
+		
+		final long startNanos      = System.nanoTime();
+		final long startIterations = host.getIterations();
+		for ( int second = 0; second < seconds; second++ ) {
+			Thread.sleep( 1000l );
+			for ( final GameSession session : sessions ) {
+				session.setControlKeyBits( (int) ( Math.random() * ( 1 << ControlKeys.values().length ) ) );
+				if ( session.isPaused() )
+					session.setPaused( false );
+			}
+		}
+		final double elapsedSec = ( System.nanoTime() - startNanos ) / 1e9;
+		final long   iterations = host.getIterations() - startIterations;
+		host.shutdown();
+		
+		System.out.println( "Sessions:                " + sessionCount );
+		System.out.println( "Threads:                 " + threads );
+		System.out.println( "Iterations per sec:      " + (long) ( iterations / elapsedSec ) );
+		System.out.println( "Scheduled per sec:       " + (long) sessionCount * iterationsPerSec );
+	}
+	
+}
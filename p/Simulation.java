@@ -0,0 +1,675 @@
+package p;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static p.Boat.NET_SIZE;
+import static p.Bubble.BUBBLE_SIZE;
+import static p.Fish.FISH_HEIGHT;
+import static p.Fish.FISH_WIDTH;
+import static p.GameModel.DEFAULT_WORLD_WIDTH;
+import static p.WaterSurface.MAX_SURFACE_AMPLITUDE;
+import static p.WaterSurface.SEA_LEVEL;
+
+/**
+ * The simulation of a Fishing game.<br>
+ * Calculates the iterations of a game model. It does not depend on AWT/Swing and does not do any timing,
+ * so it can run without a display (with java.awt.headless=true) as fast as the CPU allows.<br>
+ * <br>
+ * The entities can be stepped in parallel on a ForkJoinPool. The parallel iterations give the same results
+ * as the sequential ones: the chunks only mark the fishes and bubbles to be removed, and the removals
+ * are done afterwards in the same order.<br>
+ * <br>
+ * The capture of the fishes is swept: the path of a fish relative to the net is tested against the net,
+ * so fast fishes cannot jump over the net between two iterations. The path is tested in sub-steps
+ * (set by the fishing.subStepsPerSec system property), the net moving along the interpolated path
+ * of the boat and the water surface in the iteration.<br>
+ * <br>
+ * Can be started on its own to soak test the game logic:<br>
+ *   java -Djava.awt.headless=true -cp . p.Simulation [iterations [parallelism [seed]]]
+ * 
+ * @author Andras Belicza
+ */
+public class Simulation {
+
+	/** Number of iterations per sec the game model is tuned for.                  */
+	public  static final int ITERATIONS_PER_SEC           = 20;
+	/** Max allowed  missed fishes. Reaching this is the end of game.              */
+	public  static final int MAX_FISHES_MISSED            = 10;
+	/** Default number of iterations of the soak test.                             */
+	private static final int SOAK_TEST_ITERATIONS         = 10000000;
+	/** Number of iterations while the soak test holds the same keys.              */
+	private static final int SOAK_TEST_KEY_PERIOD         = 10;
+	/** Number of warm up iterations before the soak test measures allocation.     */
+	private static final int SOAK_TEST_WARM_UP_ITERATIONS = 100000;
+	/** Max number of entities stepped in one chunk by the parallel iteration.     */
+	private static final int PARALLEL_CHUNK_SIZE          = 2048;
+	/** Fate of an entity which stays in the scene.                                */
+	private static final byte FATE_NONE                   = 0;
+	/** Fate of a fish which has been caught or a bubble which came out of the water. */
+	private static final byte FATE_REMOVED                = 1;
+	/** Fate of a fish which left the scene.                                       */
+	private static final byte FATE_MISSED                 = 2;
+	/** Base 2 logarithm of the size of the cells of the grid of fishes.           */
+	private static final int FISH_GRID_CELL_SIZE_SHIFT    = 5;
+	/** Default number of the capture sub-steps per second.                        */
+	public  static final int SUB_STEPS_PER_SEC            = Math.max( 1, Integer.getInteger( "fishing.subStepsPerSec", ITERATIONS_PER_SEC ) );
+	
+	/** The game model.                                                            */
+	private final GameModel gameModel;
+	/** Snapshot of the states of the control keys, reused in every iteration.     */
+	private final boolean[] controlKeyStates = new boolean[ ControlKeys.values().length ];
+	/** Grid of the fishes, used to find the fishes near the net and at the sides of the world. */
+	private final SpatialGrid fishGrid;
+	/** Indices of the fishes to be removed in the current iteration.              */
+	private int[]           removedFishes      = new int[ 16 ];
+	/** Number of fishes to be removed in the current iteration.                   */
+	private int             removedFishesCount;
+	/** Marks of the removed fishes: equals to removalMark if removed in the current iteration. */
+	private int[]           removalMarks       = new int[ 64 ];
+	/** Mark of the current iteration.                                             */
+	private int             removalMark;
+	/** Pool stepping the entities in parallel; null if entities are stepped sequentially. */
+	private final ForkJoinPool forkJoinPool;
+	/** Fates of the entities stepped by the parallel iteration.                  */
+	private byte[]          fates              = new byte[ 64 ];
+	/** x coordinate of the net in the current iteration (read by the parallel chunks). */
+	private int             netX;
+	/** y coordinate of the net in the current iteration (read by the parallel chunks). */
+	private int             netY;
+	/** Number of the capture sub-steps of an iteration.                          */
+	private int             subSteps;
+	/** x coordinates of the net at the sub-steps of the iteration, index 0 is the start of the iteration (read by the parallel chunks). */
+	private int[]           subStepNetXs;
+	/** y coordinates of the net at the sub-steps of the iteration, index 0 is the start of the iteration (read by the parallel chunks). */
+	private int[]           subStepNetYs;
+	
+	/**
+	 * Creates a new Simulation with a new game model.
+	 */
+	public Simulation() {
+		this( new GameModel() );
+	}
+	
+	/**
+	 * Creates a new Simulation.
+	 * @param gameModel the game model to be simulated
+	 */
+	public Simulation( final GameModel gameModel ) {
+		this( gameModel, 0 );
+	}
+	
+	/**
+	 * Creates a new Simulation.
+	 * @param gameModel   the game model to be simulated
+	 * @param parallelism number of threads stepping the entities in parallel; 0 to step them sequentially
+	 */
+	public Simulation( final GameModel gameModel, final int parallelism ) {
+		this.gameModel = gameModel;
+		fishGrid       = new SpatialGrid( -FISH_WIDTH, 0, gameModel.worldWidth + 2*FISH_WIDTH, gameModel.worldHeight, FISH_GRID_CELL_SIZE_SHIFT );
+		forkJoinPool   = parallelism > 0 ? new ForkJoinPool( parallelism ) : null;
+		setSubSteps( getDefaultSubSteps( gameModel.iterationsPerSec ) );
+	}
+	
+	/**
+	 * Returns the default number of the capture sub-steps of an iteration: SUB_STEPS_PER_SEC spread over the iterations.
+	 * @param iterationsPerSec number of iterations per second
+	 * @return the default number of the capture sub-steps of an iteration
+	 */
+	public static int getDefaultSubSteps( final int iterationsPerSec ) {
+		return Math.max( 1, ( SUB_STEPS_PER_SEC + iterationsPerSec - 1 ) / iterationsPerSec );
+	}
+	
+	/**
+	 * Returns the number of the capture sub-steps of an iteration.
+	 * @return the number of the capture sub-steps of an iteration
+	 */
+	public int getSubSteps() {
+		return subSteps;
+	}
+	
+	/**
+	 * Sets the number of the capture sub-steps of an iteration.<br>
+	 * The fishes move along straight lines, but the net follows the water surface, so more sub-steps
+	 * follow the path of the net more precisely. The moves of the fishes do not depend on the sub-steps.
+	 * @param subSteps number of the capture sub-steps of an iteration (at least 1)
+	 */
+	public void setSubSteps( final int subSteps ) {
+		if ( subSteps < 1 )
+			throw new IllegalArgumentException( "The number of sub-steps must be positive!" );
+		this.subSteps = subSteps;
+		subStepNetXs  = new int[ subSteps + 1 ];
+		subStepNetYs  = new int[ subSteps + 1 ];
+	}
+	
+	/**
+	 * Returns the game model. It can be used to observe the state of the game.
+	 * @return the game model
+	 */
+	public GameModel getGameModel() {
+		return gameModel;
+	}
+	
+	/**
+	 * Resets the simulation, so a new game can begin.
+	 */
+	public void reset() {
+		gameModel.init();
+		fishGrid.clear();
+	}
+	
+	/**
+	 * Resets the simulation, so a new game can begin with the specified seed.
+	 * @param seed seed of the new game
+	 */
+	public void reset( final long seed ) {
+		gameModel.init( seed );
+		fishGrid.clear();
+	}
+	
+	/**
+	 * Tells whether game is over.<br>
+	 * @return true if game is over; false otherwise
+	 * @see GameModel#isGameOver()
+	 */
+	public boolean isGameOver() {
+		return gameModel.isGameOver();
+	}
+	
+	/**
+	 * Calculates the next iteration of the game.<br>
+	 * The steady state sequential iteration does not allocate any memory: the entity stores reuse their columns,
+	 * and the states of the control keys are copied into a reused snapshot.
+	 * @param controlKeyStates states of the control keys, indexed by the ordinals of ControlKeys
+	 */
+	public void step( final boolean[] controlKeyStates ) {
+		// Taking a snapshot of the states of control keys will ensure that
+		// all the process of the iteration will see and use the same key states
+		System.arraycopy( controlKeyStates, 0, this.controlKeyStates, 0, this.controlKeyStates.length );
+		
+		gameModel.boat.makeMove( this.controlKeyStates );
+		
+		gameModel.waterSurface.makeStep();
+		
+		final Boat boat = gameModel.boat;
+		netX = boat.getX();
+		netY = boat.getBoatY() + boat.getY();
+		// The path of the net in the iteration: interpolated at the sub-steps, exact at the end
+		for ( int subStep = 0; subStep < subSteps; subStep++ ) {
+			final double alpha = (double) subStep / subSteps;
+			subStepNetXs[ subStep ] = boat.getInterpolatedX( alpha );
+			subStepNetYs[ subStep ] = boat.getInterpolatedBoatY( alpha ) + boat.getInterpolatedY( alpha );
+		}
+		subStepNetXs[ subSteps ] = netX;
+		subStepNetYs[ subSteps ] = netY;
+		
+		if ( forkJoinPool == null ) {
+			stepFishes();
+			stepBubbles();
+		}
+		else {
+			stepFishesInParallel();
+			stepBubblesInParallel();
+		}
+		
+		// We may "launch" a new fish. As the time goes, probability of launching fish goes higher.
+		// Wider worlds have proportionally more tries (a world of the default width has exactly one).
+		// The time and the chances are scaled by the time step, so shorter iterations launch as many fishes per second.
+		final double timeStep        = gameModel.timeStep;
+		final double fishProbability = Math.min( 0.075, 0.025 + gameModel.iterationCounter * timeStep / 20000.0 );
+		for ( double tries = (double) gameModel.worldWidth / DEFAULT_WORLD_WIDTH; tries > 0.0; tries -= 1.0 )
+			if ( gameModel.random.nextDouble() < fishProbability * timeStep * Math.min( 1.0, tries ) )
+				addNewFish();
+
+		// A new bubble may appear in the water
+		for ( double tries = (double) gameModel.worldWidth / DEFAULT_WORLD_WIDTH; tries > 0.0; tries -= 1.0 )
+			if ( gameModel.random.nextDouble() < 0.03 * timeStep * Math.min( 1.0, tries ) )
+				Bubble.add( gameModel.bubbles, (int) ( gameModel.random.nextDouble() * gameModel.worldWidth ), gameModel.worldHeight );
+		
+		gameModel.iterationCounter++;
+	}
+	
+	/**
+	 * Steps the fishes, and removes the caught ones and the ones which left the scene.<br>
+	 * Uses the grid of fishes, so only the fishes near the net and at the sides of the scene are checked.
+	 */
+	private void stepFishes() {
+		// We step the fishes, and keep the grid of fishes up to date
+		final EntityStore fishes = gameModel.fishes;
+		if ( fishGrid.getCount() != fishes.count )
+			rebuildFishGrid();  // Fishes were added or removed from outside (e.g. the game model was reset)
+		if ( removalMarks.length < fishes.count )
+			removalMarks = Arrays.copyOf( removalMarks, Math.max( fishes.count, removalMarks.length * 2 ) );
+		double maxStepX = 0.0;
+		double maxStepY = 0.0;
+		final double timeStep = gameModel.timeStep;
+		for ( int i = 0; i < fishes.count; i++ ) {
+			fishes.makeStep( i, timeStep );
+			fishGrid.update( i, fishes.getX( i ), fishes.getY( i ) );
+			maxStepX = Math.max( maxStepX, Math.abs( fishes.vx[ i ] * timeStep ) );
+			maxStepY = Math.max( maxStepY, Math.abs( fishes.vy[ i ] * timeStep ) );
+		}
+		
+		// Is a fish being caught? Only fishes in the cells near the path of the net are checked
+		// (a fish which swept through the net is at most one step away from the path at the end of the iteration).
+		removedFishesCount = 0;
+		removalMark++;
+		int minNetX = netX, maxNetX = netX, minNetY = netY, maxNetY = netY;
+		for ( int subStep = 0; subStep < subSteps; subStep++ ) {
+			minNetX = Math.min( minNetX, subStepNetXs[ subStep ] );
+			maxNetX = Math.max( maxNetX, subStepNetXs[ subStep ] );
+			minNetY = Math.min( minNetY, subStepNetYs[ subStep ] );
+			maxNetY = Math.max( maxNetY, subStepNetYs[ subStep ] );
+		}
+		// The steps are limited to the size of the world, so the coordinates cannot overflow
+		final int reachX = NET_SIZE/2 + FISH_HEIGHT + (int) Math.ceil( Math.min( maxStepX, gameModel.worldWidth  ) );
+		final int reachY = NET_SIZE/2               + (int) Math.ceil( Math.min( maxStepY, gameModel.worldHeight ) );
+		final int lastCaptureColumn = fishGrid.getColumn( maxNetX + reachX );
+		final int lastCaptureRow    = fishGrid.getRow   ( maxNetY + reachY );
+		for ( int column = fishGrid.getColumn( minNetX - reachX ); column <= lastCaptureColumn; column++ )
+			for ( int row = fishGrid.getRow( minNetY - reachY ); row <= lastCaptureRow; row++ )
+				for ( int i = fishGrid.getFirstEntity( column, row ); i != SpatialGrid.NONE; i = fishGrid.getNextEntity( i ) )
+					if ( isCaught( fishes, i ) ) {
+						markFishRemoved( i );
+						gameModel.fishesCaught++;
+						commitFishCatchEvent( fishes.getX( i ), fishes.getY( i ) );
+					}
+		
+		// Did a fish just leave the world? Only fishes in the border columns are checked.
+		final int lastLeftColumn   = fishGrid.getColumn( -FISH_WIDTH/2 - 1 );
+		final int firstRightColumn = fishGrid.getColumn( gameModel.worldWidth + FISH_WIDTH/2 );
+		for ( int column = 0; column <= lastLeftColumn; column++ )
+			checkFishesLeavingScene( column );
+		for ( int column = Math.max( firstRightColumn, lastLeftColumn + 1 ); column < fishGrid.getColumns(); column++ )
+			checkFishesLeavingScene( column );
+		
+		removeMarkedFishes();
+	}
+	
+	/**
+	 * Steps the bubbles, and removes the ones which came out of the water.
+	 */
+	private void stepBubbles() {
+		final EntityStore bubbles = gameModel.bubbles;
+		for ( int i = bubbles.count - 1; i >= 0; i-- ) {
+			Bubble.makeStep( bubbles, i, gameModel.timeStep );
+			// Did the bubble come out of the water?
+			if ( bubbles.getY( i ) - BUBBLE_SIZE/2 < gameModel.waterSurface.getWaterLevelAt( Bubble.getX( bubbles, i ) ) )
+				bubbles.remove( i );
+		}
+	}
+	
+	/**
+	 * Steps the fishes in parallel chunks, and removes the caught ones and the ones which left the scene.<br>
+	 * The chunks check every fish (the grid of fishes is not maintained by the parallel iteration),
+	 * but they only record the fates of the fishes. The fishes are removed afterwards in descending order
+	 * of their indices, the same way as the sequential iteration removes them.
+	 */
+	private void stepFishesInParallel() {
+		final EntityStore fishes = gameModel.fishes;
+		fishGrid.clear();
+		if ( fates.length < fishes.count )
+			fates = Arrays.copyOf( fates, Math.max( fishes.count, fates.length * 2 ) );
+		
+		if ( fishes.count > PARALLEL_CHUNK_SIZE )
+			forkJoinPool.invoke( new ChunkTask( true, 0, fishes.count ) );
+		else
+			stepFishChunk( 0, fishes.count );
+		
+		for ( int i = fishes.count - 1; i >= 0; i-- )
+			if ( fates[ i ] != FATE_NONE ) {
+				if ( fates[ i ] == FATE_MISSED ) {
+					gameModel.fishesMissed++;
+					commitFishMissEvent( fishes.getX( i ), fishes.getY( i ) );
+				}
+				else {
+					gameModel.fishesCaught++;
+					commitFishCatchEvent( fishes.getX( i ), fishes.getY( i ) );
+				}
+				fishes.remove( i );
+			}
+	}
+	
+	/**
+	 * Steps the bubbles in parallel chunks, and removes the ones which came out of the water.<br>
+	 * The chunks only record the fates of the bubbles, the bubbles are removed afterwards in descending order
+	 * of their indices (which is the order the sequential iteration removes them).
+	 */
+	private void stepBubblesInParallel() {
+		final EntityStore bubbles = gameModel.bubbles;
+		if ( fates.length < bubbles.count )
+			fates = Arrays.copyOf( fates, Math.max( bubbles.count, fates.length * 2 ) );
+		
+		if ( bubbles.count > PARALLEL_CHUNK_SIZE )
+			forkJoinPool.invoke( new ChunkTask( false, 0, bubbles.count ) );
+		else
+			stepBubbleChunk( 0, bubbles.count );
+		
+		for ( int i = bubbles.count - 1; i >= 0; i-- )
+			if ( fates[ i ] != FATE_NONE )
+				bubbles.remove( i );
+	}
+	
+	/**
+	 * Steps a chunk of the fishes, and records their fates.
+	 * @param from index of the first fish of the chunk
+	 * @param to   index after the last fish of the chunk
+	 */
+	private void stepFishChunk( final int from, final int to ) {
+		final EntityStore fishes = gameModel.fishes;
+		for ( int i = from; i < to; i++ ) {
+			fishes.makeStep( i, gameModel.timeStep );
+			final int fishX = fishes.getX( i );
+			
+			if ( isCaught( fishes, i ) )
+				fates[ i ] = FATE_REMOVED;
+			else if ( fishX < -FISH_WIDTH/2 || fishX > gameModel.worldWidth - 1 + FISH_WIDTH/2 )
+				fates[ i ] = FATE_MISSED;
+			else
+				fates[ i ] = FATE_NONE;
+		}
+	}
+	
+	/**
+	 * Steps a chunk of the bubbles, and records their fates.<br>
+	 * The water level is calculated without the cache of the water surface, because chunks run on multiple threads.
+	 * @param from index of the first bubble of the chunk
+	 * @param to   index after the last bubble of the chunk
+	 */
+	private void stepBubbleChunk( final int from, final int to ) {
+		final EntityStore bubbles = gameModel.bubbles;
+		for ( int i = from; i < to; i++ ) {
+			Bubble.makeStep( bubbles, i, gameModel.timeStep );
+			fates[ i ] = bubbles.getY( i ) - BUBBLE_SIZE/2 < gameModel.waterSurface.calculateWaterLevelAt( Bubble.getX( bubbles, i ) ) ? FATE_REMOVED : FATE_NONE;
+		}
+	}
+	
+	/**
+	 * Task stepping a range of fishes or bubbles. Ranges larger than PARALLEL_CHUNK_SIZE are split into halves.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		
+		/** Version of the serialized form of the class. */
+		private static final long serialVersionUID = 1l;
+		
+		/** Tells whether fishes or bubbles are stepped. */
+		private final boolean fishTask;
+		/** Index of the first entity of the range.      */
+		private final int     from;
+		/** Index after the last entity of the range.    */
+		private final int     to;
+		
+		/**
+		 * Creates a new ChunkTask.
+		 * @param fishTask tells whether fishes or bubbles are stepped
+		 * @param from     index of the first entity of the range
+		 * @param to       index after the last entity of the range
+		 */
+		public ChunkTask( final boolean fishTask, final int from, final int to ) {
+			this.fishTask = fishTask;
+			this.from     = from;
+			this.to       = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if ( to - from > PARALLEL_CHUNK_SIZE ) {
+				final int middle = ( from + to ) >>> 1;
+				invokeAll( new ChunkTask( fishTask, from, middle ), new ChunkTask( fishTask, middle, to ) );
+			}
+			else if ( fishTask )
+				stepFishChunk( from, to );
+			else
+				stepBubbleChunk( from, to );
+		}
+		
+	}
+	
+	/**
+	 * Commits a flight recorder event of a caught fish if the event is enabled.
+	 * Must be called after the number of caught fishes is incremented.
+	 * @param x x coordinate of the caught fish
+	 * @param y y coordinate of the caught fish
+	 */
+	private void commitFishCatchEvent( final int x, final int y ) {
+		GameEvents.fishCatch( x, y, gameModel.fishesCaught );
+	}
+	
+	/**
+	 * Commits a flight recorder event of a missed fish if the event is enabled.
+	 * Must be called after the number of missed fishes is incremented.
+	 * @param x x coordinate of the missed fish
+	 * @param y y coordinate of the missed fish
+	 */
+	private void commitFishMissEvent( final int x, final int y ) {
+		GameEvents.fishMiss( x, y, gameModel.fishesMissed );
+	}
+	
+	/**
+	 * Tells whether a fish is caught by the net in the current iteration.<br>
+	 * Fish is caught, if the center point of the fish is inside the net (which is a circle) at the end of the iteration,
+	 *              or if "it would swim into our net",
+	 *              or if the center point of the fish swept through the net in the iteration: in a sub-step
+	 *                 the fish and the net move along straight lines, so the center of the fish moves along a segment
+	 *                 relative to the net, which is tested against the circle.<br>
+	 * Only reads the fish and the path of the net, so it can be called from multiple threads at the same time.
+	 * @param fishes the fishes
+	 * @param i      index of the fish
+	 * @return true if the fish is caught; false otherwise
+	 */
+	private boolean isCaught( final EntityStore fishes, final int i ) {
+		final int fishX = fishes.getX( i );
+		final int fishY = fishes.getY( i );
+		if ( square( fishX                                                                 - netX ) + square( fishY - netY ) < NET_SIZE/2*NET_SIZE/2 || 
+		     square( fishX + (Fish.headingRight( fishes, i )?+FISH_HEIGHT:-FISH_HEIGHT) - netX ) + square( fishY - netY ) < NET_SIZE/2*NET_SIZE/2 )
+			return true;
+		
+		final double prevX = fishes.prevX[ i ];
+		final double prevY = fishes.prevY[ i ];
+		double startX = prevX - subStepNetXs[ 0 ];
+		double startY = prevY - subStepNetYs[ 0 ];
+		for ( int subStep = 1; subStep <= subSteps; subStep++ ) {
+			final double alpha = (double) subStep / subSteps;
+			final double endX  = ( subStep == subSteps ? fishes.x[ i ] : prevX + ( fishes.x[ i ] - prevX ) * alpha ) - subStepNetXs[ subStep ];
+			final double endY  = ( subStep == subSteps ? fishes.y[ i ] : prevY + ( fishes.y[ i ] - prevY ) * alpha ) - subStepNetYs[ subStep ];
+			if ( segmentHitsNet( startX, startY, endX, endY ) )
+				return true;
+			startX = endX;
+			startY = endY;
+		}
+		return false;
+	}
+	
+	/**
+	 * Tells whether a segment hits the net: whether the point of the segment closest to the center of the net
+	 * is inside the net. The coordinates are relative to the center of the net.
+	 * @param startX x coordinate of the start of the segment
+	 * @param startY y coordinate of the start of the segment
+	 * @param endX   x coordinate of the end of the segment
+	 * @param endY   y coordinate of the end of the segment
+	 * @return true if the segment hits the net; false otherwise
+	 */
+	private static boolean segmentHitsNet( final double startX, final double startY, final double endX, final double endY ) {
+		final double dx       = endX - startX;
+		final double dy       = endY - startY;
+		final double length2  = dx * dx + dy * dy;
+		// Parameter of the point of the segment closest to the center, limited to the segment
+		final double t        = length2 == 0.0 ? 0.0 : Math.max( 0.0, Math.min( 1.0, -( startX * dx + startY * dy ) / length2 ) );
+		final double closestX = startX + dx * t;
+		final double closestY = startY + dy * t;
+		return closestX * closestX + closestY * closestY < NET_SIZE/2*NET_SIZE/2;
+	}
+	
+	/**
+	 * Calculates and returns the square of an integer.
+	 * @param x number whose square must be returned
+	 * @return the square of the specified number
+	 */
+	private static int square( final int x ) {
+		return x * x;
+	}
+	
+	/**
+	 * Rebuilds the grid of fishes from the positions of the fishes.
+	 */
+	private void rebuildFishGrid() {
+		final EntityStore fishes = gameModel.fishes;
+		fishGrid.clear();
+		for ( int i = 0; i < fishes.count; i++ )
+			fishGrid.add( i, fishes.getX( i ), fishes.getY( i ) );
+	}
+	
+	/**
+	 * Marks the fishes of a column of the grid of fishes which left the scene (and were not caught) to be removed.
+	 * @param column column of the grid of fishes to be checked
+	 */
+	private void checkFishesLeavingScene( final int column ) {
+		final EntityStore fishes = gameModel.fishes;
+		for ( int row = 0; row < fishGrid.getRows(); row++ )
+			for ( int i = fishGrid.getFirstEntity( column, row ); i != SpatialGrid.NONE; i = fishGrid.getNextEntity( i ) ) {
+				final int fishX = fishes.getX( i );
+				if ( removalMarks[ i ] != removalMark && ( fishX < -FISH_WIDTH/2 || fishX > gameModel.worldWidth - 1 + FISH_WIDTH/2 ) ) {
+					markFishRemoved( i );
+					gameModel.fishesMissed++;
+					commitFishMissEvent( fishX, fishes.getY( i ) );
+				}
+			}
+	}
+	
+	/**
+	 * Marks a fish to be removed at the end of the checks of the current iteration.
+	 * @param i index of the fish
+	 */
+	private void markFishRemoved( final int i ) {
+		if ( removedFishesCount == removedFishes.length )
+			removedFishes = Arrays.copyOf( removedFishes, removedFishes.length * 2 );
+		removalMarks [ i ] = removalMark;
+		removedFishes[ removedFishesCount++ ] = i;
+	}
+	
+	/**
+	 * Removes the fishes marked to be removed.<br>
+	 * Fishes are removed in descending order of their indices, so the last fish moved to the place
+	 * of a removed fish is never one that is to be removed later.
+	 */
+	private void removeMarkedFishes() {
+		// Insertion sort: only a few fishes are removed in an iteration
+		for ( int i = 1; i < removedFishesCount; i++ ) {
+			final int index = removedFishes[ i ];
+			int j = i - 1;
+			for ( ; j >= 0 && removedFishes[ j ] < index; j-- )
+				removedFishes[ j + 1 ] = removedFishes[ j ];
+			removedFishes[ j + 1 ] = index;
+		}
+		for ( int i = 0; i < removedFishesCount; i++ ) {
+			gameModel.fishes.remove( removedFishes[ i ] );
+			fishGrid        .remove( removedFishes[ i ] );
+		}
+	}
+	
+	/**
+	 * Generates and adds a new fish.
+	 */
+	private void addNewFish() {
+		// By FREE I mean the fish can swim there, for example, the fish cannot swim in the air or in the waves.
+		final double  FREE_WATER_RANGE = gameModel.worldHeight - SEA_LEVEL - MAX_SURFACE_AMPLITUDE - FISH_HEIGHT;
+		final double  MIN_FREE_LEVEL   = SEA_LEVEL + MAX_SURFACE_AMPLITUDE;
+
+		final boolean comingFromLeft = gameModel.random.nextDouble() < 0.5;  // 50% chance for coming from left, 50% for right
+		final double  startXPos = comingFromLeft ? -FISH_WIDTH/2 : gameModel.worldWidth - 1 + FISH_WIDTH/2;
+		final double  startYPos = MIN_FREE_LEVEL + gameModel.random.nextDouble() * FREE_WATER_RANGE;
+		// We generate an endYPos for determining vy. We want the new fish to head to this point
+		final double  endYPos   = MIN_FREE_LEVEL + gameModel.random.nextDouble() * FREE_WATER_RANGE;
+
+		// For vx: 2.2 at the beginning, and maximum value increases 1/20 in every seconds (of game time, at any iteration rate)
+		// And if it comes from right, it must be negative
+		final double  vx        = ( comingFromLeft ? 1 :-1 ) * ( 2.2 + gameModel.random.nextDouble() * ( gameModel.iterationCounter / gameModel.iterationsPerSec / 20 ) );
+		// v=s/t where s=endYPos-startYPos and t=worldWidth/vx.      vy must be this, if we want the fish to head toward endYPos
+		final double  vy        = ( endYPos - startYPos ) / ( (gameModel.worldWidth+FISH_WIDTH) / Math.abs( vx ) );
+		
+		// We now have all parameter for a new fish
+		final int i = gameModel.fishes.add( startXPos, startYPos, vx, vy );
+		
+		// The event is only created if it is enabled, so the iterations do not allocate memory even before the JIT compiles them
+		GameEvents.fishSpawn( startXPos, startYPos, vx, vy );
+
+		if ( forkJoinPool == null )  // The grid of fishes is not maintained by the parallel iteration
+			fishGrid.add( i, gameModel.fishes.getX( i ), gameModel.fishes.getY( i ) );
+	}
+	
+	/**
+	 * Runs a soak test: plays games with changing random keys for the specified number of iterations
+	 * and prints the results.<br>
+	 * After the warm up the memory allocated by the iterations is measured (if the JVM supports it),
+	 * and the soak test fails (exits with status 1) if the iterations allocated memory.
+	 * A few hundred bytes allocated once by the JVM itself (e.g. by deoptimization) is tolerated,
+	 * but an allocation in every iteration is not.
+	 * The same seed results in the same games. The iteration rate can be set by the fishing.iterationsPerSec system property
+	 * (the games last as many iterations more as many times the rate is higher than ITERATIONS_PER_SEC).
+	 * @param arguments optionally the number of iterations can be specified as the first argument,
+	 *                  the parallelism (number of threads stepping the entities) as the second argument
+	 *                  and the seed as the third argument
+	 */
+	public static void main( final String[] arguments ) {
+		final int        iterations       = arguments.length > 0 ? Integer.parseInt( arguments[ 0 ] ) : SOAK_TEST_ITERATIONS;
+		final long       seed             = arguments.length > 2 ? Long.parseLong( arguments[ 2 ] ) : FastRandom.newSeed();
+		final GameModel  initialGameModel = new GameModel( seed, GameModel.DEFAULT_WORLD_WIDTH, GameModel.DEFAULT_WORLD_HEIGHT,
+		                                                   WaveSpectrum.create( Integer.getInteger( "fishing.waveComponents", 1 ) ),
+		                                                   Math.max( 1, Integer.getInteger( "fishing.iterationsPerSec", ITERATIONS_PER_SEC ) ),
+		                                                   Integer.getInteger( "fishing.sineTableSize", 0 ) );
+		final Simulation simulation       = new Simulation( initialGameModel, arguments.length > 1 ? Integer.parseInt( arguments[ 1 ] ) : 0 );
+		final GameModel  gameModel        = simulation.getGameModel();
+		final boolean[]  controlKeyStates = new boolean[ ControlKeys.values().length ];
+		final FastRandom keyRandom        = new FastRandom( ~seed );
+		
+		long games        = 0;
+		long fishesCaught = 0;
+		long startAllocatedBytes = -1;
+		final long startNanos = System.nanoTime();
+		for ( int i = 0; i < iterations; i++ ) {
+			if ( i == SOAK_TEST_WARM_UP_ITERATIONS )
+				startAllocatedBytes = getAllocatedBytes();
+
+			if ( i % SOAK_TEST_KEY_PERIOD == 0 )
+				for ( int j = 0; j < controlKeyStates.length; j++ )
+					controlKeyStates[ j ] = keyRandom.nextDouble() < 0.5;
+			
+			simulation.step( controlKeyStates );
+			
+			if ( simulation.isGameOver() ) {
+				games++;
+				fishesCaught += gameModel.fishesCaught;
+				simulation.reset();
+			}
+		}
+		final long elapsedNanos   = Math.max( 1l, System.nanoTime() - startNanos );
+		final long allocatedBytes = startAllocatedBytes < 0 ? -1 : getAllocatedBytes() - startAllocatedBytes;
+		
+		System.out.println( "Seed:                    " + seed );
+		System.out.println( "Iterations:              " + iterations );
+		System.out.println( "Iterations per sec:      " + (long) ( iterations * 1e9 / elapsedNanos ) );
+		System.out.println( "Games finished:          " + games );
+		System.out.println( "Fishes caught per game:  " + ( games == 0 ? 0.0 : (double) fishesCaught / games ) );
+		System.out.println( "Bytes allocated:         " + ( allocatedBytes < 0 ? "not measured" : allocatedBytes ) );
+		
+		if ( allocatedBytes >= iterations - SOAK_TEST_WARM_UP_ITERATIONS ) {
+			System.out.println( "Iterations must not allocate memory!" );
+			System.exit( 1 );
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes allocated by the current thread.
+	 * @return the number of bytes allocated by the current thread; -1 if the JVM does not support measuring it
+	 */
+	static long getAllocatedBytes() {
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if ( threadMXBean instanceof com.sun.management.ThreadMXBean )
+			return ( (com.sun.management.ThreadMXBean) threadMXBean ).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		return -1;
+	}
+	
+}
@@ -0,0 +1,55 @@
+package p;
+
+/**
+ * Lookup table for the sin and cos functions.<br>
+ * The table holds the values of the sin function in equidistant points of a period,
+ * values between the points are linearly interpolated. The precision is determined by the size of the table.
+ * 
+ * @author Andras Belicza
+ */
+class SineTable {
+
+	/** 2*PI. */
+	private static final double TWO_PI = 2.0 * Math.PI;
+	
+	/** Values of the sin function in size+1 equidistant points of a period. */
+	private final double[] values;
+	/** Number of points per radian.                                          */
+	private final double   pointsPerRadian;
+	
+	/**
+	 * Creates a new SineTable.
+	 * @param size number of points per period; the bigger, the more precise
+	 */
+	public SineTable( final int size ) {
+		values = new double[ size + 1 ];
+		for ( int i = 0; i <= size; i++ )
+			values[ i ] = Math.sin( TWO_PI * i / size );
+		pointsPerRadian = size / TWO_PI;
+	}
+	
+	/**
+	 * Returns the sin of an angle.
+	 * @param angle angle in radians
+	 * @return the sin of the angle
+	 */
+	public double sin( final double angle ) {
+		final int    size     = values.length - 1;
+		final double position = angle * pointsPerRadian;
+		final double floor    = Math.floor( position );
+		int i = (int) ( (long) floor % size );
+		if ( i < 0 )
+			i += size;
+		return values[ i ] + ( values[ i + 1 ] - values[ i ] ) * ( position - floor );
+	}
+	
+	/**
+	 * Returns the cos of an angle.
+	 * @param angle angle in radians
+	 * @return the cos of the angle
+	 */
+	public double cos( final double angle ) {
+		return sin( angle + Math.PI / 2.0 );
+	}
+	
+}
@@ -0,0 +1,208 @@
+package p;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid spatial index of entities.<br>
+ * The area is divided into square cells (whose size is a power of 2, so cells are calculated by shifts), and every entity is linked into the list of the cell containing its position
+ * (positions outside the area belong to the nearest border cell). So entities near a position can be found
+ * by visiting only a few cells.<br>
+ * The grid mirrors the indices of an EntityStore: entities are added to the end, and removing an entity moves
+ * the last entity to its place (swap-remove). The lists are stored in primitive arrays indexed by the entity indices,
+ * updating the position of an entity relinks it only if it moved to another cell.
+ * 
+ * @author Andras Belicza
+ */
+class SpatialGrid {
+
+	/** Value marking the end of a list. */
+	public  static final int  NONE = -1;
+	
+	/** Base 2 logarithm of the size of a cell.                  */
+	private final int   cellSizeShift;
+	/** x coordinate of the left side of the area.               */
+	private final int   minX;
+	/** y coordinate of the top side of the area.                */
+	private final int   minY;
+	/** Number of columns of cells.                              */
+	private final int   columns;
+	/** Number of rows of cells.                                 */
+	private final int   rows;
+	/** Index of the first entity in the list of every cell.     */
+	private final int[] firstEntities;
+	/** Index of the next entity in the list of the cell.        */
+	private int[]       nextEntities;
+	/** Index of the previous entity in the list of the cell.   */
+	private int[]       prevEntities;
+	/** Index of the cell of the entities.                       */
+	private int[]       cells;
+	/** Number of entities in the grid.                          */
+	private int         count;
+	
+	/**
+	 * Creates a new SpatialGrid.
+	 * @param minX     x coordinate of the left side of the area
+	 * @param minY     y coordinate of the top side of the area
+	 * @param width    width of the area
+	 * @param height   height of the area
+	 * @param cellSizeShift base 2 logarithm of the size of a cell
+	 */
+	public SpatialGrid( final int minX, final int minY, final int width, final int height, final int cellSizeShift ) {
+		this.minX          = minX;
+		this.minY          = minY;
+		this.cellSizeShift = cellSizeShift;
+		columns            = ( width  + ( 1 << cellSizeShift ) - 1 ) >> cellSizeShift;
+		rows               = ( height + ( 1 << cellSizeShift ) - 1 ) >> cellSizeShift;
+		firstEntities = new int[ columns * rows ];
+		nextEntities  = new int[ 64 ];
+		prevEntities  = new int[ 64 ];
+		cells         = new int[ 64 ];
+		clear();
+	}
+	
+	/**
+	 * Removes all entities.
+	 */
+	public void clear() {
+		Arrays.fill( firstEntities, NONE );
+		count = 0;
+	}
+	
+	/**
+	 * Returns the number of entities in the grid.
+	 * @return the number of entities in the grid
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the number of columns of cells.
+	 * @return the number of columns of cells
+	 */
+	public int getColumns() {
+		return columns;
+	}
+	
+	/**
+	 * Returns the number of rows of cells.
+	 * @return the number of rows of cells
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Returns the column of cells containing an x coordinate (the nearest one if it is outside of the area).
+	 * @param x the x coordinate
+	 * @return the column of cells containing the x coordinate
+	 */
+	public int getColumn( final int x ) {
+		final int column = x < minX ? 0 : ( x - minX ) >> cellSizeShift;
+		return column < columns ? column : columns - 1;
+	}
+	
+	/**
+	 * Returns the row of cells containing a y coordinate (the nearest one if it is outside of the area).
+	 * @param y the y coordinate
+	 * @return the row of cells containing the y coordinate
+	 */
+	public int getRow( final int y ) {
+		final int row = y < minY ? 0 : ( y - minY ) >> cellSizeShift;
+		return row < rows ? row : rows - 1;
+	}
+	
+	/**
+	 * Returns the index of the first entity in a cell.
+	 * @param column column of the cell
+	 * @param row    row of the cell
+	 * @return the index of the first entity in the cell; NONE if the cell is empty
+	 */
+	public int getFirstEntity( final int column, final int row ) {
+		return firstEntities[ row * columns + column ];
+	}
+	
+	/**
+	 * Returns the index of the next entity in the same cell.
+	 * @param i index of the entity
+	 * @return the index of the next entity in the same cell; NONE if this was the last one
+	 */
+	public int getNextEntity( final int i ) {
+		return nextEntities[ i ];
+	}
+	
+	/**
+	 * Adds an entity. Its index must be the number of entities in the grid (entities are added to the end).
+	 * @param i index of the entity
+	 * @param x x coordinate of the entity
+	 * @param y y coordinate of the entity
+	 */
+	public void add( final int i, final int x, final int y ) {
+		if ( i == cells.length ) {
+			nextEntities = Arrays.copyOf( nextEntities, i * 2 );
+			prevEntities = Arrays.copyOf( prevEntities, i * 2 );
+			cells        = Arrays.copyOf( cells       , i * 2 );
+		}
+		link( i, getRow( y ) * columns + getColumn( x ) );
+		count++;
+	}
+	
+	/**
+	 * Updates the position of an entity.
+	 * @param i index of the entity
+	 * @param x new x coordinate of the entity
+	 * @param y new y coordinate of the entity
+	 */
+	public void update( final int i, final int x, final int y ) {
+		final int cell = getRow( y ) * columns + getColumn( x );
+		if ( cell != cells[ i ] ) {
+			unlink( i );
+			link( i, cell );
+		}
+	}
+	
+	/**
+	 * Removes an entity. The last entity is moved to its place.
+	 * @param i index of the entity to be removed
+	 */
+	public void remove( final int i ) {
+		unlink( i );
+		final int last = --count;
+		if ( i != last ) {
+			final int cell = cells[ last ];
+			unlink( last );
+			link( i, cell );
+		}
+	}
+	
+	/**
+	 * Links an entity into the list of a cell.
+	 * @param i    index of the entity
+	 * @param cell index of the cell
+	 */
+	private void link( final int i, final int cell ) {
+		final int first = firstEntities[ cell ];
+		nextEntities [ i ] = first;
+		prevEntities [ i ] = NONE;
+		if ( first != NONE )
+			prevEntities[ first ] = i;
+		firstEntities[ cell ] = i;
+		cells        [ i ] = cell;
+	}
+	
+	/**
+	 * Unlinks an entity from the list of its cell.
+	 * @param i index of the entity
+	 */
+	private void unlink( final int i ) {
+		final int next = nextEntities[ i ];
+		final int prev = prevEntities[ i ];
+		if ( prev == NONE )
+			firstEntities[ cells[ i ] ] = next;
+		else
+			nextEntities[ prev ] = next;
+		if ( next != NONE )
+			prevEntities[ next ] = prev;
+	}
+	
+}
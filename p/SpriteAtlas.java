@@ -0,0 +1,199 @@
+package p;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+
+import static p.Boat.BOAT_HEIGHT;
+import static p.Boat.BOAT_WIDTH;
+import static p.Boat.NET_SIZE;
+import static p.Fish.FISH_HEIGHT;
+import static p.Fish.FISH_WIDTH;
+
+/**
+ * The sprite atlas: pre-rendered images of the fishes, the net and the boat.<br>
+ * The sprites are rendered once when the atlas is created, then every entity is drawn with a single image blit.
+ * The boat is pre-rendered in BOAT_ROTATIONS rotations (quantized angles between -PI/2 and PI/2).<br>
+ * The atlas is immutable after creation, so it can be used by multiple painting threads.
+ * 
+ * @author Andras Belicza
+ */
+class SpriteAtlas {
+
+	/** Number of pre-rendered rotations of the boat.                                 */
+	public  static final int     BOAT_ROTATIONS = 128;
+	/** Degree of sinking of the boat to be in rest (for example 0.15 means 15%).      */
+	private static final double  SINKING_DEGREE = 0.15;
+	
+	/** Polygon of the boat.                                                          */
+	private static final Polygon BOAT_POLYGON;
+	/** Polygon of the fish heading right.                                            */
+	private static final Polygon FISH_POLYGON_RIGHT;
+	/** Polygon of the fish heading left.                                             */
+	private static final Polygon FISH_POLYGON_LEFT;
+
+	/**
+	 * Static initializator for creating the polygon of the boat and the fish.
+	 */
+	static {
+		// The X and Y sizes of the boat in a 1x1 sized square.
+		final double[] boatXs = new double[] { 0.0, 1.0/6.0, 5.0/6.0, 1.0, 4.0/6.0, 3.0/6.0, 2.0/6.0 };
+		final double[] boatYs = new double[] { 0.5, 1.0    , 1.0    , 0.5, 0.5    , 0.0    , 0.5     };
+
+		BOAT_POLYGON = new Polygon();
+		for ( int i = 0; i < boatXs.length; i++ )  // All we have to do is to zoom the boat to its game size and to move to its center
+			BOAT_POLYGON.addPoint( (int) ( boatXs[ i ] * BOAT_WIDTH ) - BOAT_WIDTH/2, (int) ( boatYs[ i ] * BOAT_HEIGHT ) - BOAT_HEIGHT/2 );
+
+		// The X and Y sizes of the fish in a 1x1 sized  square.
+		final double[] fishXs = new double[] { 1.0, 0.9 , 0.8, 0.55, 0.4, 0.25, 0.0, 0.0, 0.25, 0.4, 0.55, 0.75, 0.9, 1.0  };
+		final double[] fishYs = new double[] { 0.3, 0.15, 0.0, 0.0 , 0.2, 0.35, 0.0, 1.0, 0.65, 0.8, 1.0 , 1.0 , 0.8, 0.65 };
+		FISH_POLYGON_RIGHT = new Polygon();
+		for ( int i = 0; i < fishXs.length; i++ )  // All we have to do is to zoom the fish to its game size and to move to its center
+			FISH_POLYGON_RIGHT.addPoint( (int) ( fishXs[ i ] * FISH_WIDTH ) - FISH_WIDTH/2, (int) ( fishYs[ i ] * FISH_HEIGHT ) - FISH_HEIGHT/2 );
+
+		// The polygon of fish heading left has the same coordinates multiplied by -1
+		FISH_POLYGON_LEFT = new Polygon();
+		for ( int i = 0; i < FISH_POLYGON_RIGHT.npoints; i++ )
+			FISH_POLYGON_LEFT.addPoint( -FISH_POLYGON_RIGHT.xpoints[ i ], -FISH_POLYGON_RIGHT.ypoints[ i ] );
+	}
+	
+	/** Position of the center of the fish in the fish sprites.                       */
+	public  static final int FISH_ANCHOR      = FISH_WIDTH/2 + 1;
+	/** Size of the fish sprites (they are squares).                                  */
+	private static final int FISH_SPRITE_SIZE = 2 * FISH_ANCHOR + 1;
+	/** x position of the center of the net in the net sprite.                        */
+	private static final int NET_ANCHOR_X     = NET_SIZE/2;
+	/** y position of the center of the net in the net sprite.                        */
+	private static final int NET_ANCHOR_Y     = NET_SIZE;
+	/** Position of the rotation center of the boat in the boat sprites.              */
+	public  static final int BOAT_ANCHOR      = (int) Math.ceil( Math.hypot( BOAT_WIDTH/2, BOAT_HEIGHT ) ) + 1;
+	/** Size of the boat sprites (they are squares).                                  */
+	private static final int BOAT_SPRITE_SIZE = 2 * BOAT_ANCHOR + 1;
+	
+	/** Sprite of the fish heading right.                                             */
+	private final BufferedImage   fishRightSprite;
+	/** Sprite of the fish heading left.                                              */
+	private final BufferedImage   fishLeftSprite;
+	/** Sprite of the net (without the rope connecting it to the boat).               */
+	private final BufferedImage   netSprite;
+	/** Sprites of the boat in different rotations.                                   */
+	private final BufferedImage[] boatSprites = new BufferedImage[ BOAT_ROTATIONS ];
+	
+	/**
+	 * Creates a new SpriteAtlas, renders all the sprites.
+	 * @param fishColor color of the fishes
+	 * @param netColor  color of the net
+	 * @param boatColor color of the boat
+	 */
+	public SpriteAtlas( final Color fishColor, final Color netColor, final Color boatColor ) {
+		fishRightSprite = createFishSprite( FISH_POLYGON_RIGHT, fishColor );
+		fishLeftSprite  = createFishSprite( FISH_POLYGON_LEFT , fishColor );
+		netSprite       = createNetSprite( netColor );
+		for ( int i = 0; i < BOAT_ROTATIONS; i++ )
+			boatSprites[ i ] = createBoatSprite( -Math.PI / 2.0 + Math.PI * i / ( BOAT_ROTATIONS - 1 ), boatColor );
+	}
+	
+	/**
+	 * Creates a fish sprite.
+	 * @param fishPolygon polygon of the fish
+	 * @param fishColor   color of the fish
+	 * @return the fish sprite
+	 */
+	private static BufferedImage createFishSprite( final Polygon fishPolygon, final Color fishColor ) {
+		final BufferedImage sprite   = new BufferedImage( FISH_SPRITE_SIZE, FISH_SPRITE_SIZE, BufferedImage.TYPE_INT_ARGB );
+		final Graphics      graphics = sprite.getGraphics();
+		graphics.setColor( fishColor );
+		graphics.translate( FISH_ANCHOR, FISH_ANCHOR );
+		graphics.fillPolygon( fishPolygon );
+		graphics.dispose();
+		return sprite;
+	}
+	
+	/**
+	 * Creates the net sprite.<br>
+	 * The net consists of a circle with 3 horizontal and 3 vertical lines, and the ropes holding the circle.
+	 * @param netColor color of the net
+	 * @return the net sprite
+	 */
+	private static BufferedImage createNetSprite( final Color netColor ) {
+		final int CHORD_LENGTH = (int) ( NET_SIZE * 0.433 );   // This is the length of the half of the chord which is parallel with the diameter of the circle, and is at he half of the radius. 0.433=sqrt(3)/2/2
+		
+		final BufferedImage sprite   = new BufferedImage( NET_SIZE + 1, NET_SIZE + NET_SIZE/2 + 1, BufferedImage.TYPE_INT_ARGB );
+		final Graphics      graphics = sprite.getGraphics();
+		final int           netX     = NET_ANCHOR_X;           // center x coordinate of the net
+		final int           netY     = NET_ANCHOR_Y;           // center y coordinate of the net
+		graphics.setColor( netColor );
+		// The outline of the net
+		graphics.drawOval( netX - NET_SIZE/2, netY - NET_SIZE/2, NET_SIZE, NET_SIZE );
+		// The ropes holding the circle
+		graphics.drawLine( netX - NET_SIZE/2, netY           , netX, netY - NET_SIZE );
+		graphics.drawLine( netX + NET_SIZE/2, netY           , netX, netY - NET_SIZE );
+		// The vertical lines of net
+		graphics.drawLine( netX - NET_SIZE/4, netY - CHORD_LENGTH, netX - NET_SIZE/4, netY + CHORD_LENGTH );
+		graphics.drawLine( netX             , netY - NET_SIZE/2  , netX             , netY + NET_SIZE/2   );
+		graphics.drawLine( netX + NET_SIZE/4, netY - CHORD_LENGTH, netX + NET_SIZE/4, netY + CHORD_LENGTH );
+		// The horizontal lines of net
+		graphics.drawLine( netX - CHORD_LENGTH, netY - NET_SIZE/4, netX + CHORD_LENGTH, netY - NET_SIZE/4 );
+		graphics.drawLine( netX - NET_SIZE/2  , netY             , netX + NET_SIZE/2  , netY              );
+		graphics.drawLine( netX - CHORD_LENGTH, netY + NET_SIZE/4, netX + CHORD_LENGTH, netY + NET_SIZE/4 );
+		graphics.dispose();
+		return sprite;
+	}
+	
+	/**
+	 * Creates a boat sprite.
+	 * @param angle     rotation angle of the boat
+	 * @param boatColor color of the boat
+	 * @return the boat sprite
+	 */
+	private static BufferedImage createBoatSprite( final double angle, final Color boatColor ) {
+		final BufferedImage sprite     = new BufferedImage( BOAT_SPRITE_SIZE, BOAT_SPRITE_SIZE, BufferedImage.TYPE_INT_ARGB );
+		final Graphics2D    graphics2D = sprite.createGraphics();
+		graphics2D.rotate( angle, BOAT_ANCHOR, BOAT_ANCHOR );
+		graphics2D.translate( BOAT_ANCHOR, BOAT_ANCHOR - (int) ( BOAT_HEIGHT * (0.5-SINKING_DEGREE) ) );
+		graphics2D.setColor( boatColor );
+		graphics2D.fillPolygon( BOAT_POLYGON );
+		graphics2D.dispose();
+		return sprite;
+	}
+	
+	/**
+	 * Draws a fish.
+	 * @param graphics     the graphics context in which to paint
+	 * @param x            x coordinate of the center of the fish
+	 * @param y            y coordinate of the center of the fish
+	 * @param headingRight tells whether the fish is heading right
+	 */
+	public void drawFish( final Graphics graphics, final int x, final int y, final boolean headingRight ) {
+		graphics.drawImage( headingRight ? fishRightSprite : fishLeftSprite, x - FISH_ANCHOR, y - FISH_ANCHOR, null );
+	}
+	
+	/**
+	 * Draws the net (without the rope connecting it to the boat).
+	 * @param graphics the graphics context in which to paint
+	 * @param netX     x coordinate of the center of the net
+	 * @param netY     y coordinate of the center of the net
+	 */
+	public void drawNet( final Graphics graphics, final int netX, final int netY ) {
+		graphics.drawImage( netSprite, netX - NET_ANCHOR_X, netY - NET_ANCHOR_Y, null );
+	}
+	
+	/**
+	 * Draws the boat.
+	 * @param graphics the graphics context in which to paint
+	 * @param boatX    x coordinate of the boat (the rotation center)
+	 * @param boatY    y coordinate of the boat (the rotation center)
+	 * @param angle    rotation angle of the boat, it is quantized to the nearest pre-rendered rotation
+	 */
+	public void drawBoat( final Graphics graphics, final int boatX, final int boatY, final double angle ) {
+		int rotation = (int) Math.round( ( angle + Math.PI / 2.0 ) / Math.PI * ( BOAT_ROTATIONS - 1 ) );
+		if ( rotation < 0 )
+			rotation = 0;
+		else if ( rotation >= BOAT_ROTATIONS )
+			rotation = BOAT_ROTATIONS - 1;
+		graphics.drawImage( boatSprites[ rotation ], boatX - BOAT_ANCHOR, boatY - BOAT_ANCHOR, null );
+	}
+	
+}
@@ -0,0 +1,35 @@
+package p;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of calculating an iteration of the game.<br>
+ * Disabled by default, enabled by the fishing.jfc settings file.
+ * 
+ * @author Andras Belicza
+ */
+@Name( "p.Tick" )
+@Label( "Tick" )
+@Description( "Calculation of an iteration of the game" )
+@Category( { "Fishing", "Simulation" } )
+@Enabled( false )
+@StackTrace( false )
+class TickEvent extends Event {
+
+	/** Iteration counter after the iteration. */
+	@Label( "Iteration" )
+	public int iteration;
+	/** Number of fishes after the iteration.  */
+	@Label( "Fishes" )
+	public int fishCount;
+	/** Number of bubbles after the iteration. */
+	@Label( "Bubbles" )
+	public int bubbleCount;
+	
+}
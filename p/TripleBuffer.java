@@ -0,0 +1,69 @@
+package p;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer for handing over data from a single producer thread to a single consumer thread.<br>
+ * The producer always fills the back buffer and publishes it, the consumer always reads the front buffer,
+ * and the third (middle) buffer holds the last published data. Publishing and acquiring swap a buffer
+ * with the middle one by an atomic operation, so the producer and the consumer never touch the same buffer,
+ * and neither of them waits for the other.
+ * 
+ * @param <T> type of the buffers
+ * @author Andras Belicza
+ */
+class TripleBuffer< T > {
+
+	/** Mask of the buffer index in the state.                         */
+	private static final int INDEX_MASK = 0x03;
+	/** Flag in the state telling the middle buffer has not been read. */
+	private static final int FRESH_FLAG = 0x04;
+	
+	/** The three buffers.                                             */
+	private final Object[]      buffers;
+	/** Index of the middle buffer with the FRESH_FLAG.                */
+	private final AtomicInteger state      = new AtomicInteger( 1 );
+	/** Index of the back buffer (owned by the producer).              */
+	private int                 backIndex  = 0;
+	/** Index of the front buffer (owned by the consumer).             */
+	private int                 frontIndex = 2;
+	
+	/**
+	 * Creates a new TripleBuffer.
+	 * @param buffer1 the first buffer
+	 * @param buffer2 the second buffer
+	 * @param buffer3 the third buffer
+	 */
+	public TripleBuffer( final T buffer1, final T buffer2, final T buffer3 ) {
+		buffers = new Object[] { buffer1, buffer2, buffer3 };
+	}
+	
+	/**
+	 * Returns the back buffer to be filled by the producer.
+	 * @return the back buffer
+	 */
+	@SuppressWarnings( "unchecked" )
+	public T getBackBuffer() {
+		return (T) buffers[ backIndex ];
+	}
+	
+	/**
+	 * Publishes the back buffer. Must be called by the producer after filling the back buffer.
+	 */
+	public void publish() {
+		backIndex = state.getAndSet( backIndex | FRESH_FLAG ) & INDEX_MASK;
+	}
+	
+	/**
+	 * Returns the front buffer holding the last published data. Must be called by the consumer.<br>
+	 * The returned buffer is not touched by the producer until the next call of this method.
+	 * @return the front buffer holding the last published data
+	 */
+	@SuppressWarnings( "unchecked" )
+	public T getFrontBuffer() {
+		if ( ( state.get() & FRESH_FLAG ) != 0 )
+			frontIndex = state.getAndSet( frontIndex ) & INDEX_MASK;
+		return (T) buffers[ frontIndex ];
+	}
+	
+}
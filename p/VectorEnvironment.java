@@ -0,0 +1,256 @@
+package p;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many fishing environments stepped together by one call.<br>
+ * The actions, observations, rewards and done flags of the environments are stored in caller provided
+ * (preferably direct, native byte order) buffers: environment i has its action in byte i of the action buffer,
+ * its observation at offset i*OBSERVATION_SIZE of the observation buffer (see FishingEnvironment for the layout),
+ * its reward in float i of the reward buffer and its done flag in byte i of the done buffer.
+ * The positions of the buffers are not used and not changed.<br>
+ * An environment whose episode is done is reset automatically in the same step: its done flag is set,
+ * its reward is the reward of the last step of the episode, and its observation is the first observation
+ * of the new episode.<br>
+ * The environments can be stepped in parallel on a ForkJoinPool. The sequential steps do not allocate memory,
+ * the parallel steps reuse their tasks (only the pool allocates a few bytes for waiting on the tasks).<br>
+ * <br>
+ * Can be started on its own to measure the throughput with random actions:<br>
+ *   java -Djava.awt.headless=true -cp . p.VectorEnvironment [environments [parallelism [steps]]]
+ *
+ * @author Andras Belicza
+ * @see FishingEnvironment
+ */
+public class VectorEnvironment {
+	
+	/** Default number of environments of the throughput test.             */
+	private static final int THROUGHPUT_TEST_ENVIRONMENTS = 256;
+	/** Default number of steps of the throughput test.                    */
+	private static final int THROUGHPUT_TEST_STEPS        = 20000;
+	/** Number of warm up steps before the throughput test measures.       */
+	private static final int THROUGHPUT_TEST_WARM_UP_STEPS = 2000;
+	/** Number of chunks per thread the environments are split into.      */
+	private static final int CHUNKS_PER_THREAD            = 4;
+	
+	/** The environments.                                                       */
+	private final FishingEnvironment[] environments;
+	/** Pool stepping the environments in parallel; null if they are stepped sequentially. */
+	private final ForkJoinPool         forkJoinPool;
+	/** Reused tasks stepping the chunks of environments in parallel.           */
+	private final ChunkTask[]          chunkTasks;
+	/** Reused task forking the chunk tasks.                                    */
+	private final RecursiveAction      rootTask;
+	
+	/** Actions of the current step (read by the chunk tasks).                  */
+	private ByteBuffer  actions;
+	/** Observations of the current step (written by the chunk tasks).         */
+	private FloatBuffer observations;
+	/** Rewards of the current step (written by the chunk tasks).              */
+	private FloatBuffer rewards;
+	/** Done flags of the current step (written by the chunk tasks).           */
+	private ByteBuffer  dones;
+	
+	/**
+	 * Creates a new VectorEnvironment.
+	 * @param count       number of environments
+	 * @param seed        seed used to generate the seeds of the first episodes of the environments
+	 * @param parallelism number of threads stepping the environments in parallel; 0 to step them sequentially
+	 */
+	public VectorEnvironment( final int count, final long seed, final int parallelism ) {
+		final FastRandom seedRandom = new FastRandom( seed );
+		environments = new FishingEnvironment[ count ];
+		for ( int i = 0; i < count; i++ )
+			environments[ i ] = new FishingEnvironment( seedRandom.nextLong() );
+		
+		if ( parallelism > 0 ) {
+			forkJoinPool = new ForkJoinPool( parallelism );
+			final int chunks = Math.max( 1, Math.min( count, parallelism * CHUNKS_PER_THREAD ) );
+			chunkTasks = new ChunkTask[ chunks ];
+			for ( int i = 0; i < chunks; i++ )
+				chunkTasks[ i ] = new ChunkTask( (int) ( (long) count * i / chunks ), (int) ( (long) count * ( i + 1 ) / chunks ) );
+			rootTask = new RecursiveAction() {
+				@Override
+				protected void compute() {
+					for ( final ChunkTask chunkTask : chunkTasks )
+						chunkTask.reinitialize();
+					invokeAll( chunkTasks );
+				}
+			};
+		}
+		else {
+			forkJoinPool = null;
+			chunkTasks   = null;
+			rootTask     = null;
+		}
+	}
+	
+	/**
+	 * Returns the number of environments.
+	 * @return the number of environments
+	 */
+	public int getCount() {
+		return environments.length;
+	}
+	
+	/**
+	 * Returns an environment.
+	 * @param i index of the environment
+	 * @return the environment with the specified index
+	 */
+	public FishingEnvironment getEnvironment( final int i ) {
+		return environments[ i ];
+	}
+	
+	/**
+	 * Starts new episodes in all environments.
+	 * @param observations buffer to write the observations into
+	 */
+	public void reset( final FloatBuffer observations ) {
+		for ( int i = 0; i < environments.length; i++ )
+			environments[ i ].reset( observations, i * FishingEnvironment.OBSERVATION_SIZE );
+	}
+	
+	/**
+	 * Makes a step in all environments.
+	 * @param actions      actions of the environments, one byte per environment
+	 * @param observations buffer to write the observations into
+	 * @param rewards      buffer to write the rewards into
+	 * @param dones        buffer to write the done flags into (1 if the episode is done, 0 otherwise)
+	 */
+	public void step( final ByteBuffer actions, final FloatBuffer observations, final FloatBuffer rewards, final ByteBuffer dones ) {
+		if ( forkJoinPool == null ) {
+			step( actions, observations, rewards, dones, 0, environments.length );
+			return;
+		}
+		
+		this.actions      = actions;
+		this.observations = observations;
+		this.rewards      = rewards;
+		this.dones        = dones;
+		rootTask.reinitialize();
+		forkJoinPool.invoke( rootTask );
+	}
+	
+	/**
+	 * Makes a step in a range of environments.
+	 * @param actions      actions of the environments, one byte per environment
+	 * @param observations buffer to write the observations into
+	 * @param rewards      buffer to write the rewards into
+	 * @param dones        buffer to write the done flags into
+	 * @param from         index of the first environment to be stepped
+	 * @param to           index after the last environment to be stepped
+	 */
+	private void step( final ByteBuffer actions, final FloatBuffer observations, final FloatBuffer rewards, final ByteBuffer dones, final int from, final int to ) {
+		for ( int i = from; i < to; i++ ) {
+			final FishingEnvironment environment = environments[ i ];
+			final int                offset      = i * FishingEnvironment.OBSERVATION_SIZE;
+			rewards.put( i, environment.step( actions.get( i ), observations, offset ) );
+			if ( environment.isDone() ) {
+				dones.put( i, (byte) 1 );
+				environment.reset( observations, offset );
+			}
+			else
+				dones.put( i, (byte) 0 );
+		}
+	}
+	
+	/**
+	 * Shuts down the threads stepping the environments in parallel.
+	 */
+	public void shutdown() {
+		if ( forkJoinPool != null )
+			forkJoinPool.shutdown();
+	}
+	
+	/**
+	 * Task stepping a chunk of environments of the parallel step.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		
+		/** Version of the serialized form of the class.        */
+		private static final long serialVersionUID = 1l;
+		
+		/** Index of the first environment of the chunk.        */
+		private final int from;
+		/** Index after the last environment of the chunk.      */
+		private final int to;
+		
+		/**
+		 * Creates a new ChunkTask.
+		 * @param from index of the first environment of the chunk
+		 * @param to   index after the last environment of the chunk
+		 */
+		public ChunkTask( final int from, final int to ) {
+			this.from = from;
+			this.to   = to;
+		}
+		
+		@Override
+		protected void compute() {
+			step( actions, observations, rewards, dones, from, to );
+		}
+		
+	}
+	
+	/**
+	 * Creates a direct buffer in native byte order.
+	 * @param size size of the buffer in bytes
+	 * @return a direct buffer in native byte order
+	 */
+	public static ByteBuffer allocateBuffer( final int size ) {
+		return ByteBuffer.allocateDirect( size ).order( ByteOrder.nativeOrder() );
+	}
+	
+	/**
+	 * Runs a throughput test: steps the environments with random actions, and prints the number of frames
+	 * (steps of an environment) per second.
+	 * @param arguments optionally the number of environments, the parallelism and the number of steps
+	 */
+	public static void main( final String[] arguments ) {
+		final int count       = arguments.length > 0 ? Integer.parseInt( arguments[ 0 ] ) : THROUGHPUT_TEST_ENVIRONMENTS;
+		final int parallelism = arguments.length > 1 ? Integer.parseInt( arguments[ 1 ] ) : Runtime.getRuntime().availableProcessors();
+		final int steps       = arguments.length > 2 ? Integer.parseInt( arguments[ 2 ] ) : THROUGHPUT_TEST_STEPS;
+		
+		final long              seed              = FastRandom.newSeed();
+		final VectorEnvironment vectorEnvironment = new VectorEnvironment( count, seed, parallelism );
+		final ByteBuffer        actions           = allocateBuffer( count );
+		final FloatBuffer       observations      = allocateBuffer( count * FishingEnvironment.OBSERVATION_SIZE * 4 ).asFloatBuffer();
+		final FloatBuffer       rewards           = allocateBuffer( count * 4 ).asFloatBuffer();
+		final ByteBuffer        dones             = allocateBuffer( count );
+		final FastRandom        actionRandom      = new FastRandom( ~seed );
+		final int               actionMask        = ( 1 << ControlKeys.values().length ) - 1;
+		
+		vectorEnvironment.reset( observations );
+		long episodes   = 0;
+		long startNanos = System.nanoTime();
+		long startAllocatedBytes = Simulation.getAllocatedBytes();
+		for ( int step = -THROUGHPUT_TEST_WARM_UP_STEPS; step < steps; step++ ) {
+			if ( step == 0 ) {
+				episodes            = 0;
+				startNanos          = System.nanoTime();
+				startAllocatedBytes = Simulation.getAllocatedBytes();
+			}
+			
+			for ( int i = 0; i < count; i++ )
+				actions.put( i, (byte) ( actionRandom.nextLong() & actionMask ) );
+			vectorEnvironment.step( actions, observations, rewards, dones );
+			for ( int i = 0; i < count; i++ )
+				episodes += dones.get( i );
+		}
+		final long elapsedNanos   = Math.max( 1l, System.nanoTime() - startNanos );
+		final long allocatedBytes = startAllocatedBytes < 0 ? -1 : Simulation.getAllocatedBytes() - startAllocatedBytes;
+		vectorEnvironment.shutdown();
+		
+		System.out.println( "Seed:                    " + seed );
+		System.out.println( "Environments:            " + count );
+		System.out.println( "Parallelism:             " + parallelism );
+		System.out.println( "Frames per sec:          " + (long) ( (double) count * steps * 1e9 / elapsedNanos ) );
+		System.out.println( "Episodes finished:       " + episodes );
+		System.out.println( "Bytes allocated:         " + ( allocatedBytes < 0 ? "not measured" : allocatedBytes ) + ( parallelism > 0 ? " (by the calling thread)" : "" ) );
+	}
+	
+}
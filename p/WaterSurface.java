@@ -3,33 +3,331 @@ package p;
 /**
  * This class simulates the water surface which is basically a sin function.<br>
  * The surface function is:<br>
- *  Amplitude*sin(phi+omega*x)
+ *  Amplitude*sin(phi+omega*x)<br>
+ * or the sum of multiple sin components if the wave spectrum has more components (see WaveSpectrum).<br>
+ * <br>
+ * The heights and the slopes of the surface in the columns of the world are cached:
+ * a column is calculated at most once per iteration, when it is first needed
+ * (the cached values are stamped with the version of the surface they belong to).
+ * The heights of the previous iteration are kept too for interpolation.
+ * Optionally a sine table is used instead of Math.sin() and Math.cos() by a single-component surface
+ * (the table changes the heights, so its size is part of the game like the spectrum).<br>
+ * A multi-component surface is calculated by a WaveKernel: a column on its own if it is looked up sparsely
+ * (e.g. at the boat and the bubbles), or in a whole block of columns if the columns are swept (e.g. when painting),
+ * which is detected by the previous column being already calculated.
  * 
  * @author Andras Belicza
  */
 class WaterSurface {
 
 	/** The sea level (without waves).          */
-	public  static final int    SEA_LEVEL             = 100;
+	public  static final int       SEA_LEVEL              = 100;
 	/** Maximum value of surface amplitude.     */
-	public  static final int    MAX_SURFACE_AMPLITUDE =  44;
+	public  static final int       MAX_SURFACE_AMPLITUDE  =  44;
 	/** Maximum value of the drifting velocity. */
-	private static final double MAX_DRIFTING_VELOCITY = 3.5;
-	/** Omega of the sin wave of the surface.   */
-	private static final double SURFACE_OMEGA         = 0.033;
+	private static final double    MAX_DRIFTING_VELOCITY  = 3.5;
+	/** Step of the surface phase.              */
+	private static final double    SURFACE_PHASE_STEP     = 0.12;
+	/** Step of the surface amplitude.          */
+	private static final double    SURFACE_AMPLITUDE_STEP = 0.008;
 	
 
+	/** Width of the world, the number of cached columns.       */
+	private final int          width;
+	/** Wave spectrum of the surface.                           */
+	private final WaveSpectrum spectrum;
+	/** Drift factor of the wave spectrum.                      */
+	private final double       driftFactor;
+	/** Length of an iteration relative to the iteration the game is tuned for. */
+	private final double       timeStep;
+	/** Kernel calculating the blocks of columns; null if the spectrum has a single component. */
+	private final WaveKernel   kernel;
+	/** Sine table to be used; null if Math.sin() and Math.cos() are to be used. */
+	private final SineTable    sineTable;
+	/** Size of the sine table; 0 if there is no sine table.    */
+	private final int          sineTableSize;
 	/** Water surface is a sin function. This is its phase.     */
 	public double surfacePhase;
 	/** Water surface is a sin function. This is its amplitude. */
 	public double surfaceAmplitude;
+	/** Surface phase in the previous iteration.                */
+	public double prevSurfacePhase;
+	/** Surface amplitude in the previous iteration.            */
+	public double prevSurfaceAmplitude;
+	
+	/** Counter of the versions of the surface, incremented when the surface changes. */
+	private int      versionCounter;
+	/** Version of the surface.                                                       */
+	private int      version;
+	/** Version of the surface in the previous iteration.                             */
+	private int      prevVersion;
+	/** Cached heights of the surface (relative to SEA_LEVEL) in the columns.          */
+	private double[] heights;
+	/** Versions of the cached heights.                                               */
+	private int[]    heightVersions;
+	/** Cached heights of the surface in the columns in the previous iteration.       */
+	private double[] prevHeights;
+	/** Versions of the cached heights of the previous iteration.                     */
+	private int[]    prevHeightVersions;
+	/** Cached slopes (derivatives) of the surface in the columns.                    */
+	private double[] slopes;
+	/** Versions of the cached slopes.                                                */
+	private int[]    slopeVersions;
 
+	/** Components of the spectrum.                                                   */
+	private Components components;
+	/** Components of the spectrum in the previous iteration.                         */
+	private Components prevComponents;
+	
+	/**
+	 * WaterSurface creates a new WaterSurface stepping with the iteration the game is tuned for.
+	 * @param width    width of the world, the number of cached columns
+	 * @param spectrum wave spectrum of the surface
+	 */
+	public WaterSurface( final int width, final WaveSpectrum spectrum ) {
+		this( width, spectrum, 1.0, 0 );
+	}
+	
 	/**
 	 * WaterSurface creates a new WaterSurface.
+	 * @param width         width of the world, the number of cached columns
+	 * @param spectrum      wave spectrum of the surface
+	 * @param timeStep      length of an iteration relative to the iteration the game is tuned for (scales the steps of the surface)
+	 * @param sineTableSize if positive, a sine table of this size is used instead of Math.sin() and Math.cos();
+	 *                      ignored if the spectrum has more components (they are calculated by a WaveKernel)
+	 */
+	public WaterSurface( final int width, final WaveSpectrum spectrum, final double timeStep, final int sineTableSize ) {
+		this.width         = width;
+		this.spectrum      = spectrum;
+		this.timeStep      = timeStep;
+		driftFactor        = spectrum.getDriftFactor();
+		kernel             = spectrum.getComponents() > 1 ? WaveKernel.create( spectrum, width ) : null;
+		this.sineTableSize = kernel == null && sineTableSize > 0 ? sineTableSize : 0;
+		sineTable          = this.sineTableSize > 0 ? new SineTable( this.sineTableSize ) : null;
+		
+		// A multi-component surface is calculated in whole blocks, so the cache is rounded up to whole blocks
+		final int columns = kernel == null ? width : ( width + WaveKernel.BLOCK - 1 ) / WaveKernel.BLOCK * WaveKernel.BLOCK;
+		heights            = new double[ columns ];
+		heightVersions     = new int   [ columns ];
+		prevHeights        = new double[ columns ];
+		prevHeightVersions = new int   [ columns ];
+		slopes             = new double[ columns ];
+		slopeVersions      = new int   [ columns ];
+		components         = new Components();
+		prevComponents     = new Components();
+		init();
+	}
+	
+	/**
+	 * Returns the wave spectrum of the surface.
+	 * @return the wave spectrum of the surface
+	 */
+	public WaveSpectrum getSpectrum() {
+		return spectrum;
+	}
+	
+	/**
+	 * Returns the size of the sine table used by the surface.
+	 * @return the size of the sine table used by the surface; 0 if Math.sin() and Math.cos() are used
+	 */
+	public int getSineTableSize() {
+		return sineTableSize;
+	}
+	
+	/**
+	 * Inits the water surface to its initial calm state.
+	 */
+	public void init() {
+		surfacePhase         = 0.0;
+		surfaceAmplitude     = 2.0;
+		prevSurfacePhase     = surfacePhase;
+		prevSurfaceAmplitude = surfaceAmplitude;
+		
+		invalidateCache();
+	}
+	
+	/**
+	 * Invalidates all the cached columns. Must be called if the phase or the amplitude is set from outside.
+	 */
+	public void invalidateCache() {
+		// New versions invalidate all the cached columns
+		prevVersion = ++versionCounter;
+		version     = ++versionCounter;
+		
+		prevComponents.update( prevSurfacePhase, prevSurfaceAmplitude );
+		components    .update( surfacePhase    , surfaceAmplitude     );
+	}
+	
+	/**
+	 * The amplitudes and the phases of the components of the spectrum in an iteration.
+	 */
+	private class Components {
+		
+		/** Amplitudes of the components.                                           */
+		public final double[] amplitudes      = new double[ spectrum.getComponents() ];
+		/** Amplitudes of the slopes of the components (omega times the amplitude). */
+		public final double[] slopeAmplitudes = new double[ spectrum.getComponents() ];
+		/** Phases of the components.                                               */
+		public final double[] phases          = new double[ spectrum.getComponents() ];
+		/** Sin of the phases of the components (only used by the kernel).         */
+		public final double[] phaseSines      = new double[ spectrum.getComponents() ];
+		/** Cos of the phases of the components (only used by the kernel).         */
+		public final double[] phaseCosines    = new double[ spectrum.getComponents() ];
+		
+		/**
+		 * Calculates the components from the phase and the amplitude of the surface.
+		 * @param surfacePhase     phase of the surface
+		 * @param surfaceAmplitude amplitude of the surface
+		 */
+		public void update( final double surfacePhase, final double surfaceAmplitude ) {
+			for ( int k = 0; k < amplitudes.length; k++ ) {
+				amplitudes     [ k ] = surfaceAmplitude * spectrum.getAmplitude( k );
+				slopeAmplitudes[ k ] = spectrum.getOmega( k ) * amplitudes[ k ];
+				phases         [ k ] = spectrum.getPhase( k, surfacePhase );
+				if ( kernel != null ) {
+					// The phase grows without limit, reducing it first is much faster than Math.sin() and Math.cos() with large angles
+					final double reducedPhase = phases[ k ] - 2.0 * Math.PI * Math.rint( phases[ k ] / ( 2.0 * Math.PI ) );
+					phaseSines  [ k ] = Math.sin( reducedPhase );
+					phaseCosines[ k ] = Math.cos( reducedPhase );
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Copies the state of another water surface into this one. The wave spectra of the surfaces must be the same.<br>
+	 * The cached columns are not copied (they would be as wide as the world), they are invalidated instead,
+	 * and calculated again when they are needed (e.g. only the visible columns when the copy is rendered).
+	 * @param waterSurface the water surface to be copied
+	 */
+	public void copyFrom( final WaterSurface waterSurface ) {
+		surfacePhase         = waterSurface.surfacePhase;
+		surfaceAmplitude     = waterSurface.surfaceAmplitude;
+		prevSurfacePhase     = waterSurface.prevSurfacePhase;
+		prevSurfaceAmplitude = waterSurface.prevSurfaceAmplitude;
+		
+		invalidateCache();
+	}
+	
+	/**
+	 * Makes the water surface to step one.<br>
+	 * The phase is incremented, and the amplitude is increased in every iteration until it reaches its limit.
+	 */
+	public void makeStep() {
+		prevSurfacePhase     = surfacePhase;
+		prevSurfaceAmplitude = surfaceAmplitude;
+		
+		surfacePhase += SURFACE_PHASE_STEP * timeStep;
+		if ( surfaceAmplitude < MAX_SURFACE_AMPLITUDE )
+			surfaceAmplitude += SURFACE_AMPLITUDE_STEP * timeStep;
+		
+		// The cached heights become the previous ones (they keep their version), and a new version invalidates the current ones
+		final double[] storedHeights        = prevHeights;
+		final int[]    storedHeightVersions = prevHeightVersions;
+		prevHeights        = heights;
+		prevHeightVersions = heightVersions;
+		heights            = storedHeights;
+		heightVersions     = storedHeightVersions;
+		prevVersion        = version;
+		version            = ++versionCounter;
+		
+		// The components are swapped the same way, only the current ones have to be calculated
+		final Components storedComponents = prevComponents;
+		prevComponents = components;
+		components     = storedComponents;
+		components.update( surfacePhase, surfaceAmplitude );
+	}
+	
+	/**
+	 * Returns the height of the surface (relative to SEA_LEVEL) at a specified position.
+	 * @param x position where we want to know the height
+	 * @return the height of the surface at the specified position
 	 */
-	public WaterSurface() {
-		surfacePhase     = 0.0;
-		surfaceAmplitude = 2.0;
+	private double getHeightAt( final int x ) {
+		if ( x < 0 || x >= width )
+			return calculateHeightAt( components, x );
+		
+		if ( heightVersions[ x ] != version ) {
+			if ( kernel == null || x == 0 || heightVersions[ x - 1 ] != version ) {
+				heights       [ x ] = calculateHeightAt( components, x );
+				heightVersions[ x ] = version;
+			}
+			else
+				calculateBlock( x, false );
+		}
+		return heights[ x ];
+	}
+	
+	/**
+	 * Returns the height of the surface (relative to SEA_LEVEL) at a specified position in the previous iteration.
+	 * @param x position where we want to know the height
+	 * @return the height of the surface at the specified position in the previous iteration
+	 */
+	private double getPrevHeightAt( final int x ) {
+		if ( x < 0 || x >= width )
+			return calculateHeightAt( prevComponents, x );
+		
+		if ( prevHeightVersions[ x ] != prevVersion ) {
+			if ( kernel == null || x == 0 || prevHeightVersions[ x - 1 ] != prevVersion ) {
+				prevHeights       [ x ] = calculateHeightAt( prevComponents, x );
+				prevHeightVersions[ x ] = prevVersion;
+			}
+			else
+				calculatePrevBlock( x );
+		}
+		return prevHeights[ x ];
+	}
+	
+	/**
+	 * Calculates the height of the surface (relative to SEA_LEVEL) at a specified position without using the cache.
+	 * @param components components of the spectrum
+	 * @param x          position where we want to know the height
+	 * @return the height of the surface at the specified position
+	 */
+	private double calculateHeightAt( final Components components, final int x ) {
+		if ( kernel == null )
+			return components.amplitudes[ 0 ] * sin( components.phases[ 0 ] + spectrum.getOmega( 0 ) * x );
+		
+		return kernel.evaluateColumn( components.amplitudes, components.phaseSines, components.phaseCosines, x, false );
+	}
+	
+	/**
+	 * Calculates the slope of the surface at a specified position without using the cache.
+	 * @param x position where we want to know the slope
+	 * @return the slope of the surface at the specified position
+	 */
+	private double calculateSlopeAt( final int x ) {
+		if ( kernel == null )
+			return components.slopeAmplitudes[ 0 ] * cos( components.phases[ 0 ] + spectrum.getOmega( 0 ) * x );
+		
+		return kernel.evaluateColumn( components.slopeAmplitudes, components.phaseSines, components.phaseCosines, x, true );
+	}
+	
+	/**
+	 * Calculates the heights and optionally the slopes of the block of columns containing a specified position.
+	 * @param x          position in the block
+	 * @param withSlopes tells whether the slopes are to be calculated too
+	 */
+	private void calculateBlock( final int x, final boolean withSlopes ) {
+		final int from = x - x % WaveKernel.BLOCK;
+		kernel.evaluateBlock( components.amplitudes, components.slopeAmplitudes, components.phaseSines, components.phaseCosines, from, heights, withSlopes ? slopes : null );
+		for ( int i = from; i < from + WaveKernel.BLOCK; i++ )
+			heightVersions[ i ] = version;
+		if ( withSlopes )
+			for ( int i = from; i < from + WaveKernel.BLOCK; i++ )
+				slopeVersions[ i ] = version;
+	}
+	
+	/**
+	 * Calculates the heights of the previous iteration in the block of columns containing a specified position.
+	 * @param x position in the block
+	 */
+	private void calculatePrevBlock( final int x ) {
+		final int from = x - x % WaveKernel.BLOCK;
+		kernel.evaluateBlock( prevComponents.amplitudes, prevComponents.slopeAmplitudes, prevComponents.phaseSines, prevComponents.phaseCosines, from, prevHeights, null );
+		for ( int i = from; i < from + WaveKernel.BLOCK; i++ )
+			prevHeightVersions[ i ] = prevVersion;
 	}
 	
 	/**
@@ -38,16 +336,38 @@ class WaterSurface {
 	 * @return the water level at the specified posision
 	 */
 	public int getWaterLevelAt( final int x ) {
-		return SEA_LEVEL + (int) ( surfaceAmplitude * Math.sin( surfacePhase + SURFACE_OMEGA * x ) );
+		return SEA_LEVEL + (int) getHeightAt( x );
 	}
 	
 	/**
-	 * Returns the drifting velocity of the water.
+	 * Calculates the water level at a specified position without using the cache.<br>
+	 * Returns the same value as getWaterLevelAt(int), but it does not modify the water surface,
+	 * so it can be called from multiple threads at the same time.
+	 * @param x position where we want to know the water level
+	 * @return the water level at the specified posision
+	 */
+	public int calculateWaterLevelAt( final int x ) {
+		return SEA_LEVEL + (int) calculateHeightAt( components, x );
+	}
+
+	/**
+	 * Returns the water level at a specified position interpolated between the previous and the current iteration.
+	 * @param x     position where we want to know the water level
+	 * @param alpha interpolation factor, 0.0 means the previous, 1.0 means the current iteration
+	 * @return the interpolated water level at the specified posision
+	 */
+	public int getWaterLevelAt( final int x, final double alpha ) {
+		final double prevHeight = getPrevHeightAt( x );
+		return SEA_LEVEL + (int) ( prevHeight + ( getHeightAt( x ) - prevHeight ) * alpha );
+	}
+	
+	/**
+	 * Returns the drifting velocity of the water (per the iteration the game is tuned for).
 	 * @return the drifting velocity of the water.
 	 */
 	public double getDriftingVelocity() {
-		// Negative because waves go from right to left
-		return -Math.min( surfaceAmplitude / 10.0, MAX_DRIFTING_VELOCITY );
+		// Negative because waves go from right to left; the spectrum determines how fast the water drifts with the waves
+		return -Math.min( surfaceAmplitude * driftFactor / 10.0, MAX_DRIFTING_VELOCITY );
 	}
 	
 	/**
@@ -58,7 +378,36 @@ class WaterSurface {
 	 * @return angle of the surface at the specified position
 	 */
 	public double getSurfaceAngleAt( final int x ) {
-		return Math.atan( SURFACE_OMEGA * surfaceAmplitude * Math.cos( surfacePhase + SURFACE_OMEGA * x ) );
+		if ( x < 0 || x >= width )
+			return Math.atan( calculateSlopeAt( x ) );
+		
+		if ( slopeVersions[ x ] != version ) {
+			if ( kernel == null || x == 0 || slopeVersions[ x - 1 ] != version ) {
+				slopes       [ x ] = calculateSlopeAt( x );
+				slopeVersions[ x ] = version;
+			}
+			else
+				calculateBlock( x, true );
+		}
+		return Math.atan( slopes[ x ] );
+	}
+	
+	/**
+	 * Returns the sin of an angle, using the sine table if there is one.
+	 * @param angle angle in radians
+	 * @return the sin of the angle
+	 */
+	private double sin( final double angle ) {
+		return sineTable == null ? Math.sin( angle ) : sineTable.sin( angle );
+	}
+	
+	/**
+	 * Returns the cos of an angle, using the sine table if there is one.
+	 * @param angle angle in radians
+	 * @return the cos of the angle
+	 */
+	private double cos( final double angle ) {
+		return sineTable == null ? Math.cos( angle ) : sineTable.cos( angle );
 	}
 
 }
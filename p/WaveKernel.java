@@ -0,0 +1,179 @@
+package p;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
+/**
+ * Kernel calculating the heights and the slopes of a multi-component water surface in single columns or in blocks of columns.<br>
+ * No sin or cos is calculated per column: the sin and cos of the phase of a component are calculated once per iteration,
+ * and they are rotated (by the angle addition formulas) to a column by the precalculated sin and cos of omega times the column.
+ * So a column costs a few multiplications per component wherever it is calculated, and the columns are independent:
+ * the columns of a block can be calculated by vector instructions, VectorWaveKernel does them with the Vector API if it is available.
+ * Only additions and multiplications are used (in the same order in a single column, in the blocks and in both kernels),
+ * so a column has exactly the same value in every case.<br>
+ * The precalculated rotations take 16 bytes per component per column of the world.
+ *
+ * @author Andras Belicza
+ * @see VectorWaveKernel
+ */
+class WaveKernel {
+	
+	/** Number of columns of a block.                          */
+	public    static final int            BLOCK = 64;
+	/** Number of the columns calculated at once by the vector kernel. */
+	protected static final int            LANES = 4;
+	/** Constructor of the vector kernel; null if the vector kernel is not available or disabled. */
+	private   static final Constructor< ? extends WaveKernel > VECTOR_KERNEL_CONSTRUCTOR;
+	
+	/**
+	 * Static initializator for looking up the vector kernel. The vector kernel is only used if it was compiled,
+	 * the jdk.incubator.vector module is added (--add-modules jdk.incubator.vector), it gives the same results
+	 * as the scalar kernel, and it is not disabled with -Dfishing.vectorWaves=false.
+	 */
+	static {
+		Constructor< ? extends WaveKernel > vectorKernelConstructor = null;
+		if ( Boolean.parseBoolean( System.getProperty( "fishing.vectorWaves", "true" ) ) ) {
+			try {
+				vectorKernelConstructor = Class.forName( "p.VectorWaveKernel" ).asSubclass( WaveKernel.class ).getDeclaredConstructor( WaveSpectrum.class, int.class );
+				if ( !matchesScalarKernel( vectorKernelConstructor.newInstance( WaveSpectrum.create( LANES ), 2 * BLOCK ) ) )
+					vectorKernelConstructor = null;
+			} catch ( final Exception e ) {
+				vectorKernelConstructor = null;
+			} catch ( final LinkageError le ) {
+				vectorKernelConstructor = null;
+			}
+		}
+		VECTOR_KERNEL_CONSTRUCTOR = vectorKernelConstructor;
+	}
+	
+	/** Number of components of the spectrum.                                      */
+	protected final int      components;
+	/** Omegas of the components.                                                  */
+	protected final double[] omegas;
+	/** Number of the columns of the whole blocks of the world.                    */
+	protected final int      columns;
+	/** Cos of the omegas times the columns (rotations to the columns), at index k*columns+x. */
+	protected final double[] columnCosines;
+	/** Sin of the omegas times the columns (rotations to the columns), at index k*columns+x. */
+	protected final double[] columnSines;
+	
+	/**
+	 * Creates the kernel of a spectrum: the vector kernel if it is available, the scalar one otherwise.
+	 * @param spectrum the spectrum of the water surface
+	 * @param width    width of the world
+	 * @return the kernel of the spectrum
+	 */
+	public static WaveKernel create( final WaveSpectrum spectrum, final int width ) {
+		if ( VECTOR_KERNEL_CONSTRUCTOR != null )
+			try {
+				return VECTOR_KERNEL_CONSTRUCTOR.newInstance( spectrum, width );
+			} catch ( final Exception e ) {
+				// Should not happen, it worked in the static initializator; fall back to the scalar kernel
+			}
+		return new WaveKernel( spectrum, width );
+	}
+	
+	/**
+	 * Tells whether the vector kernel is used.
+	 * @return true if the vector kernel is used; false if the scalar kernel is used
+	 */
+	public static boolean isVectorKernelUsed() {
+		return VECTOR_KERNEL_CONSTRUCTOR != null;
+	}
+	
+	/**
+	 * Creates a new WaveKernel.
+	 * @param spectrum the spectrum of the water surface
+	 * @param width    width of the world
+	 */
+	protected WaveKernel( final WaveSpectrum spectrum, final int width ) {
+		components    = spectrum.getComponents();
+		omegas        = new double[ components ];
+		columns       = ( width + BLOCK - 1 ) / BLOCK * BLOCK;
+		columnCosines = new double[ components * columns ];
+		columnSines   = new double[ components * columns ];
+		for ( int k = 0; k < components; k++ ) {
+			omegas[ k ] = spectrum.getOmega( k );
+			for ( int x = 0; x < columns; x++ ) {
+				columnCosines[ k * columns + x ] = Math.cos( omegas[ k ] * x );
+				columnSines  [ k * columns + x ] = Math.sin( omegas[ k ] * x );
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the heights and optionally the slopes of the surface in a block of columns.<br>
+	 * The scalar kernel adds the components one after the other to the columns of the block. Overridden by the vector kernel.
+	 * @param amplitudes      amplitudes of the components
+	 * @param slopeAmplitudes amplitudes of the slopes of the components (omega times the amplitude)
+	 * @param phaseSines      sin of the phases of the components
+	 * @param phaseCosines    cos of the phases of the components
+	 * @param from            first column of the block, must be a multiple of BLOCK, 0&lt;=from&lt;width
+	 * @param heights         array to store the heights into, indexed by the column
+	 * @param slopes          array to store the slopes into, indexed by the column; null if the slopes are not needed
+	 */
+	public void evaluateBlock( final double[] amplitudes, final double[] slopeAmplitudes, final double[] phaseSines, final double[] phaseCosines, final int from, final double[] heights, final double[] slopes ) {
+		Arrays.fill( heights, from, from + BLOCK, 0.0 );
+		if ( slopes != null )
+			Arrays.fill( slopes, from, from + BLOCK, 0.0 );
+		
+		for ( int k = 0; k < components; k++ ) {
+			final double phaseSin = phaseSines  [ k ];
+			final double phaseCos = phaseCosines[ k ];
+			for ( int x = from, i = k * columns + from; x < from + BLOCK; x++, i++ ) {
+				heights[ x ] += amplitudes[ k ] * ( phaseSin * columnCosines[ i ] + phaseCos * columnSines[ i ] );
+				if ( slopes != null )
+					slopes[ x ] += slopeAmplitudes[ k ] * ( phaseCos * columnCosines[ i ] - phaseSin * columnSines[ i ] );
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the height or the slope of the surface in a single column, exactly as it is calculated in a block.<br>
+	 * Does not modify the kernel, so it can be called from multiple threads at the same time.
+	 * @param amplitudes   amplitudes of the components (or amplitudes of the slopes to calculate the slope)
+	 * @param phaseSines   sin of the phases of the components
+	 * @param phaseCosines cos of the phases of the components
+	 * @param x            the column
+	 * @param slope        tells whether the slope is to be calculated instead of the height
+	 * @return the height or the slope of the surface in the column
+	 */
+	public double evaluateColumn( final double[] amplitudes, final double[] phaseSines, final double[] phaseCosines, final int x, final boolean slope ) {
+		// The rotations of the columns outside of the world are not precalculated
+		final boolean precalculated = x >= 0 && x < columns;
+		
+		double value = 0.0;
+		for ( int k = 0; k < components; k++ ) {
+			final double columnCos = precalculated ? columnCosines[ k * columns + x ] : Math.cos( omegas[ k ] * x );
+			final double columnSin = precalculated ? columnSines  [ k * columns + x ] : Math.sin( omegas[ k ] * x );
+			value += amplitudes[ k ] * ( slope ? phaseCosines[ k ] * columnCos - phaseSines[ k ] * columnSin
+			                                   : phaseSines  [ k ] * columnCos + phaseCosines[ k ] * columnSin );
+		}
+		return value;
+	}
+	
+	/**
+	 * Tells whether a kernel gives the same results as the scalar kernel.
+	 * @param kernel the kernel to be checked
+	 * @return true if the kernel gives the same results as the scalar kernel; false otherwise
+	 */
+	private static boolean matchesScalarKernel( final WaveKernel kernel ) {
+		final WaveKernel scalarKernel = new WaveKernel( WaveSpectrum.create( LANES ), 2 * BLOCK );
+		final double[]   amplitudes   = new double[ LANES ];
+		final double[]   phaseSines   = new double[ LANES ];
+		final double[]   phaseCosines = new double[ LANES ];
+		for ( int k = 0; k < LANES; k++ ) {
+			amplitudes  [ k ] = k + 1.5;
+			phaseSines  [ k ] = Math.sin( k * 0.7 );
+			phaseCosines[ k ] = Math.cos( k * 0.7 );
+		}
+		final double[] heights       = new double[ BLOCK * 2 ];
+		final double[] slopes        = new double[ BLOCK * 2 ];
+		final double[] scalarHeights = new double[ BLOCK * 2 ];
+		final double[] scalarSlopes  = new double[ BLOCK * 2 ];
+		kernel      .evaluateBlock( amplitudes, amplitudes, phaseSines, phaseCosines, BLOCK, heights      , slopes       );
+		scalarKernel.evaluateBlock( amplitudes, amplitudes, phaseSines, phaseCosines, BLOCK, scalarHeights, scalarSlopes );
+		return Arrays.equals( heights, scalarHeights ) && Arrays.equals( slopes, scalarSlopes );
+	}
+	
+}
@@ -0,0 +1,129 @@
+package p;
+
+/**
+ * Spectrum of the waves of the water surface: the surface is the sum of sine wave components.<br>
+ * The height of the surface (relative to SEA_LEVEL) is:<br>
+ *  Amplitude*sum( amplitude[k]*sin(speed[k]*phi+offset[k]+omega[k]*x) )<br>
+ * where Amplitude and phi are the amplitude and the phase of the water surface. The relative amplitudes
+ * sum up to 1, so the surface never gets farther from the sea level than the amplitude of the water surface.<br>
+ * The default spectrum has a single component, which is the original sine wave of the game.
+ *
+ * @author Andras Belicza
+ */
+class WaveSpectrum {
+	
+	/** Omega of the sin wave of the original surface.                                */
+	public  static final double       SURFACE_OMEGA = 0.033;
+	/** The default spectrum: the single sin wave of the original surface.            */
+	public  static final WaveSpectrum DEFAULT       = new WaveSpectrum( new double[] { 1.0 }, new double[] { SURFACE_OMEGA }, new double[] { 1.0 }, new double[] { 0.0 } );
+	/** Ratio of the lowest omega of a generated spectrum and SURFACE_OMEGA.          */
+	private static final double       MIN_OMEGA_RATIO = 0.5;
+	/** Ratio of the highest omega of a generated spectrum and SURFACE_OMEGA.         */
+	private static final double       MAX_OMEGA_RATIO = 4.0;
+	
+	/** Relative amplitudes of the components.                        */
+	private final double[] amplitudes;
+	/** Omegas (spatial frequencies) of the components.               */
+	private final double[] omegas;
+	/** Phase speeds of the components relative to the phase of the surface. */
+	private final double[] speeds;
+	/** Phase offsets of the components.                              */
+	private final double[] offsets;
+	
+	/**
+	 * Creates a new WaveSpectrum.
+	 * @param amplitudes relative amplitudes of the components
+	 * @param omegas     omegas (spatial frequencies) of the components
+	 * @param speeds     phase speeds of the components relative to the phase of the surface
+	 * @param offsets    phase offsets of the components
+	 */
+	public WaveSpectrum( final double[] amplitudes, final double[] omegas, final double[] speeds, final double[] offsets ) {
+		this.amplitudes = amplitudes.clone();
+		this.omegas     = omegas    .clone();
+		this.speeds     = speeds    .clone();
+		this.offsets    = offsets   .clone();
+	}
+	
+	/**
+	 * Creates a spectrum with the specified number of components.<br>
+	 * The single component spectrum is the default one. Otherwise the omegas of the components are spread
+	 * geometrically around SURFACE_OMEGA, shorter waves have smaller amplitudes (so all components are equally steep)
+	 * and are slower (like deep water waves: the phase speed is proportional to the square root of the omega),
+	 * and the phase offsets are fixed pseudo random values (so the same number of components always gives the same sea).
+	 * @param components number of components
+	 * @return a spectrum with the specified number of components
+	 */
+	public static WaveSpectrum create( final int components ) {
+		if ( components <= 1 )
+			return DEFAULT;
+		
+		final double[]   amplitudes   = new double[ components ];
+		final double[]   omegas       = new double[ components ];
+		final double[]   speeds       = new double[ components ];
+		final double[]   offsets      = new double[ components ];
+		final FastRandom offsetRandom = new FastRandom( components );
+		double amplitudeSum = 0.0;
+		for ( int k = 0; k < components; k++ ) {
+			final double omegaRatio = MIN_OMEGA_RATIO * Math.pow( MAX_OMEGA_RATIO / MIN_OMEGA_RATIO, (double) k / ( components - 1 ) );
+			omegas    [ k ] = SURFACE_OMEGA * omegaRatio;
+			amplitudes[ k ] = 1.0 / omegaRatio;
+			speeds    [ k ] = Math.sqrt( omegaRatio );
+			offsets   [ k ] = offsetRandom.nextDouble() * 2.0 * Math.PI;
+			amplitudeSum   += amplitudes[ k ];
+		}
+		for ( int k = 0; k < components; k++ )
+			amplitudes[ k ] /= amplitudeSum;
+		
+		return new WaveSpectrum( amplitudes, omegas, speeds, offsets );
+	}
+	
+	/**
+	 * Returns the number of components.
+	 * @return the number of components
+	 */
+	public int getComponents() {
+		return amplitudes.length;
+	}
+	
+	/**
+	 * Returns the relative amplitude of a component.
+	 * @param k index of the component
+	 * @return the relative amplitude of the component
+	 */
+	public double getAmplitude( final int k ) {
+		return amplitudes[ k ];
+	}
+	
+	/**
+	 * Returns the omega (spatial frequency) of a component.
+	 * @param k index of the component
+	 * @return the omega of the component
+	 */
+	public double getOmega( final int k ) {
+		return omegas[ k ];
+	}
+	
+	/**
+	 * Returns the phase of a component.
+	 * @param k            index of the component
+	 * @param surfacePhase phase of the water surface
+	 * @return the phase of the component
+	 */
+	public double getPhase( final int k, final double surfacePhase ) {
+		return speeds[ k ] * surfacePhase + offsets[ k ];
+	}
+	
+	/**
+	 * Returns the drift factor of the spectrum: the sum of the phase speeds of the components weighted by their
+	 * relative amplitudes. The water drifts in the direction of the waves proportionally to this
+	 * (the drift factor of the default spectrum is 1).
+	 * @return the drift factor of the spectrum
+	 */
+	public double getDriftFactor() {
+		double driftFactor = 0.0;
+		for ( int k = 0; k < amplitudes.length; k++ )
+			driftFactor += amplitudes[ k ] * speeds[ k ];
+		return driftFactor;
+	}
+	
+}
@@ -0,0 +1,51 @@
+package p;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Wave kernel calculating the columns of a block with the Vector API.<br>
+ * A 256 bit double vector holds LANES consecutive columns.
+ * The species is fixed (not the preferred one of the CPU), so the results are the same on every machine.
+ * Unlike the scalar kernel, the components are summed in the inner loop (in the same order), so the sums stay in registers.<br>
+ * This class is in a separate source directory, because it needs the jdk.incubator.vector module:
+ * it has to be compiled and run with --add-modules jdk.incubator.vector, else the scalar kernel is used.
+ *
+ * @author Andras Belicza
+ */
+class VectorWaveKernel extends WaveKernel {
+	
+	/** Species of the vectors, a vector holds the LANES lanes. */
+	private static final VectorSpecies< Double > SPECIES = DoubleVector.SPECIES_256;
+	
+	/**
+	 * Creates a new VectorWaveKernel.
+	 * @param spectrum the spectrum of the water surface
+	 * @param width    width of the world
+	 */
+	VectorWaveKernel( final WaveSpectrum spectrum, final int width ) {
+		super( spectrum, width );
+		if ( SPECIES.length() != LANES )
+			throw new IllegalStateException( "The vector species does not match the lanes of the kernel!" );
+	}
+	
+	@Override
+	public void evaluateBlock( final double[] amplitudes, final double[] slopeAmplitudes, final double[] phaseSines, final double[] phaseCosines, final int from, final double[] heights, final double[] slopes ) {
+		final DoubleVector zero = DoubleVector.zero( SPECIES );
+		for ( int x = from; x < from + BLOCK; x += LANES ) {
+			DoubleVector height = zero;
+			DoubleVector slope  = zero;
+			for ( int k = 0, i = x; k < components; k++, i += columns ) {
+				final DoubleVector columnCos = DoubleVector.fromArray( SPECIES, columnCosines, i );
+				final DoubleVector columnSin = DoubleVector.fromArray( SPECIES, columnSines  , i );
+				height = height.add( columnCos.mul( phaseSines[ k ] ).add( columnSin.mul( phaseCosines[ k ] ) ).mul( amplitudes[ k ] ) );
+				if ( slopes != null )
+					slope = slope.add( columnCos.mul( phaseCosines[ k ] ).sub( columnSin.mul( phaseSines[ k ] ) ).mul( slopeAmplitudes[ k ] ) );
+			}
+			height.intoArray( heights, x );
+			if ( slopes != null )
+				slope.intoArray( slopes, x );
+		}
+	}
+	
+}